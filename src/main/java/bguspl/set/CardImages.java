@@ -0,0 +1,80 @@
+package bguspl.set;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static bguspl.set.UserInterfaceSwing.intInBaseToPaddedString;
+
+/**
+ * Loads the card images from the resources directory.
+ */
+class CardImages {
+
+    private CardImages() {
+    }
+
+    private static URL resource(String filename) {
+        URL imageResource = CardImages.class.getClassLoader().getResource(filename);
+        if (imageResource == null)
+            throw new RuntimeException(new FileNotFoundException(filename));
+        return imageResource;
+    }
+
+    private static String cardFilename(Config config, int card) {
+        return "cards/" + intInBaseToPaddedString(card, config.featureCount, config.featureSize) + ".png";
+    }
+
+    /**
+     * Loads a single image resource.
+     *
+     * @param filename - the resource name.
+     * @return - the loaded image.
+     */
+    static Image load(String filename) {
+        return new ImageIcon(resource(filename)).getImage();
+    }
+
+    /**
+     * Loads the images of all the cards in the deck, one after the other.
+     *
+     * @param config - the game configuration.
+     * @return - the image of every card, indexed by card id.
+     */
+    static Image[] loadDeck(Config config) {
+        // init deck and load all pictures from png files
+        assert config.featureSize < 10; // otherwise there will be naming conflicts
+
+        Image[] deck = new Image[config.deckSize];
+        for (int i = 0; i < config.deckSize; ++i)
+            deck[i] = load(cardFilename(config, i));
+        return deck;
+    }
+
+    /**
+     * Loads the images of all the cards in the deck in the background, decoding them in parallel.
+     * Unlike ImageIcon (which waits on a single shared MediaTracker), ImageIO can decode on many threads at once.
+     *
+     * @param config - the game configuration.
+     * @return - a future of the image of every card, indexed by card id.
+     */
+    static CompletableFuture<Image[]> loadDeckAsync(Config config) {
+        assert config.featureSize < 10; // otherwise there will be naming conflicts
+
+        return CompletableFuture.supplyAsync(() -> IntStream.range(0, config.deckSize).parallel()
+                .mapToObj(card -> {
+                    try {
+                        return (Image) ImageIO.read(resource(cardFilename(config, card)));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .toArray(Image[]::new));
+    }
+}
@@ -21,6 +21,12 @@ public class Config {
     public final long randomSpinMin;
     public final long randomSpinMax;
 
+    /**
+     * The level and the format of the log (see applyLogSettings)
+     */
+    public final Level logLevel;
+    public final String logFormat;
+
     /**
      * The number of features on the cards (e.g. shape, color etc.)
      */
@@ -36,6 +42,11 @@ public class Config {
      */
     public final int deckSize;
 
+    /**
+     * Whether to test sets using the packed card encoding (all the features of a card in a single long)
+     */
+    public final boolean packedFeatures;
+
     /**
      * The number of human players in the game.
      */
@@ -56,6 +67,16 @@ public class Config {
      */
     public final boolean hints;
 
+    /**
+     * Whether to print a message to the console when a game thread starts or terminates
+     */
+    public final boolean threadMessages;
+
+    /**
+     * The number of table layouts whose sets are kept in the hint cache
+     */
+    public final int hintCacheSize;
+
     /**
      * The number of milliseconds until the dealer reshuffles the deck (0 show timer since last action, -1 show nothing)
      */
@@ -86,6 +107,11 @@ public class Config {
      */
     public final long endGamePauseMillies;
 
+    /**
+     * The number of milliseconds the game may take to start up before a warning is logged (0 for no budget)
+     */
+    public final long startupBudgetMillis;
+
     /**
      * The names of the players to display on the screen
      * Note: if there are more players than names, the remaining players will be called "Player 3", "Player 4", etc.
@@ -132,6 +158,90 @@ public class Config {
      */
     public final int fontSize;
 
+    /**
+     * The zoom level of the table card grid (1 for the cell sizes above; also changed by control + mouse wheel)
+     */
+    public final double tableZoom;
+
+    /**
+     * The maximum size (in pixels) of the visible part of the table card grid; a larger table can be scrolled
+     */
+    public final int maxViewportWidth;
+    public final int maxViewportHeight;
+
+    /**
+     * The number of pending updates each user interface sink (window, log) may queue (0 to update synchronously)
+     */
+    public final int uiQueueCapacity;
+
+    /**
+     * The number of times a second the countdown display is updated during the turn timeout warning
+     */
+    public final int countdownFps;
+
+    /**
+     * The arrival processes that drive the key presses of the computer players, one per player in turn, e.g.
+     * "Poisson:10,Bursty:20:5" (empty to let every computer player press keys as fast as it can, see ArrivalProcess).
+     * They replace the AI threads only: every computer player still has a player thread (see LoadGenerator)
+     */
+    public final String loadProcess;
+
+    /**
+     * The number of threads that fire the key presses of the arrival processes
+     */
+    public final int loadThreads;
+
+    /**
+     * Time one in this many acquisitions of the slot lock and the dealer lock, and report the contention at the end
+     * of the game (0 to disable the contention profiler)
+     */
+    public final int contentionSampleRate;
+
+    /**
+     * The file the game is checkpointed to, so it can be resumed with --resume (empty, the default, to disable
+     * checkpoints)
+     */
+    public final String checkpointFile;
+
+    /**
+     * The minimal time between two checkpoints of the game (see Checkpoint); always positive
+     */
+    public final long checkpointIntervalMillis;
+
+    /**
+     * The game engine: "Locks" for a dealer thread and player threads sharing the table, or "EventLoop" for a single
+     * thread that owns the whole game state and handles the key presses as messages
+     */
+    public final String engine;
+
+    /**
+     * What the dealer does when there is no set on the table: "Reshuffle", "ExtraSlots" or "MinimalSwap" (see
+     * TablePolicy)
+     */
+    public final String tablePolicy;
+
+    /**
+     * How the dealer chooses the cards it deals: "TopOfDeck" or "GuaranteedSet" (see DealingStrategy)
+     */
+    public final String dealingStrategy;
+
+    /**
+     * The file that keeps the lifetime statistics of the players by name, across games (empty, the default, to disable
+     * them, see PlayerStatsStore)
+     */
+    public final String statsFile;
+
+    /**
+     * The number of players a new statistics file has room for
+     */
+    public final int statsCapacity;
+
+    /**
+     * The maximum number of game events buffered for every subscriber of the event stream; events that do not fit are
+     * dropped for that subscriber (see GameEventStream)
+     */
+    public final int eventBufferSize;
+
     /**
      * The scancodes of the keyboard input data for each player
      * Notes:
@@ -180,12 +290,48 @@ public class Config {
         this(logger, loadProperties(configFilename, logger));
     }
 
+    /**
+     * Loads the configuration of the games of a tournament: the configuration file, with the settings that only slow
+     * down a game no one is watching turned off. The players are never frozen, the table has no delay, the game does
+     * not pause at the end, and no hints or thread messages are printed. There is no turn timeout either: the dealer
+     * reshuffles as soon as the table has no set, instead of waiting out the turn.
+     *
+     * @param logger         - the logger the configuration problems are reported to.
+     * @param configFilename - the name of the configuration file.
+     * @return - the configuration of every game of the tournament.
+     */
+    public static Config forTournament(Logger logger, String configFilename) {
+        Properties properties = loadProperties(configFilename, logger);
+        properties.setProperty("PointFreezeSeconds", "0");
+        properties.setProperty("PenaltyFreezeSeconds", "0");
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("EndGamePauseSeconds", "0");
+        properties.setProperty("TurnTimeoutSeconds", "0");
+        properties.setProperty("Hints", "False");
+        properties.setProperty("ThreadMessages", "False");
+        return new Config(logger, properties);
+    }
+
     public Config(Logger logger, Properties properties) {
+        this(logger, properties, true);
+    }
+
+    /**
+     * The class constructor.
+     *
+     * @param logger           - the logger the configuration problems are reported to.
+     * @param properties       - the configuration properties.
+     * @param applyLogSettings - true to set the level and the format of the logger right away; false for a candidate
+     *                         configuration that may still be rejected (see applyLogSettings).
+     * @throws IllegalArgumentException - if the checkpoint interval is not positive.
+     */
+    Config(Logger logger, Properties properties, boolean applyLogSettings) {
 
         // logger settings
-        Level logLevel = Level.parse(properties.getProperty("LogLevel", "ALL"));
-        String logFormat = properties.getProperty("LogFormat", "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
-        Main.setLoggerLevelAndFormat(logger, logLevel, logFormat);
+        logLevel = Level.parse(properties.getProperty("LogLevel", "ALL"));
+        logFormat = properties.getProperty("LogFormat", "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
+        if (applyLogSettings)
+            applyLogSettings(logger);
 
         // for debugging
         randomSpinMin = Long.parseLong(properties.getProperty("RandomSpinMin", "0"));
@@ -197,6 +343,7 @@ public class Config {
         featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
         featureCount = Integer.parseInt(properties.getProperty("FeatureCount", "4"));
         deckSize = (int) Math.pow(featureSize, featureCount);
+        packedFeatures = Boolean.parseBoolean(properties.getProperty("PackedFeatures", "False"));
 
         // gameplay settings
         humanPlayers = Integer.parseInt(properties.getProperty("HumanPlayers", "2"));
@@ -204,12 +351,15 @@ public class Config {
         players = humanPlayers + computerPlayers;
 
         hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
+        threadMessages = Boolean.parseBoolean(properties.getProperty("ThreadMessages", "True"));
+        hintCacheSize = Integer.parseInt(properties.getProperty("HintCacheSize", "64"));
         turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
         turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60")) * 1000.0);
         pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
         penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
         tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
         endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
+        startupBudgetMillis = (long) (Double.parseDouble(properties.getProperty("StartupBudgetSeconds", "0")) * 1000.0);
 
         // ui settings
         String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
@@ -224,6 +374,24 @@ public class Config {
         playerCellWidth = Integer.parseInt(properties.getProperty("PlayerCellWidth", "300"));
         playerCellHeight = Integer.parseInt(properties.getProperty("PlayerCellHeight", "40"));
         fontSize = Integer.parseInt(properties.getProperty("FontSize", "40"));
+        tableZoom = Double.parseDouble(properties.getProperty("TableZoom", "1"));
+        maxViewportWidth = Integer.parseInt(properties.getProperty("MaxViewportWidth", "1600"));
+        maxViewportHeight = Integer.parseInt(properties.getProperty("MaxViewportHeight", "900"));
+        uiQueueCapacity = Integer.parseInt(properties.getProperty("UiQueueCapacity", "0"));
+        countdownFps = Integer.parseInt(properties.getProperty("CountdownFps", "30"));
+        loadProcess = properties.getProperty("LoadProcess", "");
+        loadThreads = Integer.parseInt(properties.getProperty("LoadThreads", "2"));
+        contentionSampleRate = Integer.parseInt(properties.getProperty("ContentionSampleRate", "0"));
+        checkpointFile = properties.getProperty("CheckpointFile", "");
+        checkpointIntervalMillis = Long.parseLong(properties.getProperty("CheckpointIntervalMillis", "2000"));
+        if (checkpointIntervalMillis <= 0)
+            throw new IllegalArgumentException("non-positive checkpoint interval: " + checkpointIntervalMillis);
+        engine = properties.getProperty("Engine", "Locks");
+        tablePolicy = properties.getProperty("TablePolicy", "Reshuffle");
+        dealingStrategy = properties.getProperty("DealingStrategy", "TopOfDeck");
+        statsFile = properties.getProperty("StatsFile", "");
+        statsCapacity = Integer.parseInt(properties.getProperty("StatsCapacity", "4096"));
+        eventBufferSize = Integer.parseInt(properties.getProperty("EventBufferSize", "256"));
 
         // keyboard input data
         playerKeys = new int[players][rows * columns];
@@ -241,6 +409,15 @@ public class Config {
         }
     }
 
+    /**
+     * Sets the level and the format of a logger to the ones of this configuration.
+     *
+     * @param logger - the logger.
+     */
+    public void applyLogSettings(Logger logger) {
+        Main.setLoggerLevelAndFormat(logger, logLevel, logFormat);
+    }
+
     public int[] playerKeys(int player) {
         return playerKeys[player];
     }
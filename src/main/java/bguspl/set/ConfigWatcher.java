@@ -0,0 +1,166 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+/**
+ * Watches the configuration file and publishes a new validated configuration snapshot to the environment whenever
+ * the file changes, so timing settings can be tuned while the game is running.
+ * Settings that define the structure of the game (players, table, deck and keys) and the settings the game is set up
+ * with when it starts (engine, table policy, dealing strategy, checkpoint file, player statistics and event buffer
+ * size) cannot change; a new file that changes them, or that has invalid values, is rejected and the current
+ * configuration stays in effect.
+ */
+public class ConfigWatcher implements Runnable {
+
+    /**
+     * Called after a new configuration snapshot was published.
+     */
+    public interface Listener {
+        void configChanged(Config previous, Config current);
+    }
+
+    private final Env env;
+    private final Logger logger;
+    private final Path file;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * The class constructor.
+     *
+     * @param env  - the environment to publish the snapshots to.
+     * @param file - the configuration file to watch.
+     * @throws IOException - if the directory of the file cannot be watched.
+     */
+    public ConfigWatcher(Env env, Path file) throws IOException {
+        this.env = env;
+        this.logger = env.logger;
+        this.file = file.toAbsolutePath();
+        watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        thread = new Thread(this, "config-watcher");
+        thread.setDaemon(true);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void start() {
+        ThreadLogger.logStart(logger, thread.getName());
+        thread.start();
+    }
+
+    /**
+     * Stops watching the file.
+     */
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents())
+                    changed |= file.getFileName().equals(event.context());
+                key.reset();
+                if (changed) reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+        }
+        ThreadLogger.logStop(logger, thread.getName());
+    }
+
+    /**
+     * Reads the file again and publishes it if it is valid.
+     */
+    void reload() {
+        Properties properties = new Properties();
+        try (InputStream is = Files.newInputStream(file)) {
+            properties.load(is);
+        } catch (IOException e) {
+            logger.severe("cannot reload configuration file " + file + ": " + e.getMessage());
+            return;
+        }
+
+        Config previous = env.liveConfig();
+        Config current;
+        try {
+            current = new Config(logger, properties, false); // the logger is only changed once it is accepted
+        } catch (RuntimeException e) {
+            logger.severe("configuration file " + file + " was not reloaded: " + e);
+            return;
+        }
+        List<String> problems = validate(previous, current);
+        if (!problems.isEmpty()) {
+            logger.severe("configuration file " + file + " was not reloaded: " + String.join(", ", problems));
+            return;
+        }
+
+        previous = env.updateConfig(current);
+        current.applyLogSettings(logger);
+        logger.severe("configuration file " + file + " was reloaded.");
+        for (Listener listener : listeners)
+            listener.configChanged(previous, current);
+    }
+
+    /**
+     * Checks that a new configuration may replace the current one while the game is running.
+     *
+     * @param previous - the configuration in effect.
+     * @param current  - the new configuration.
+     * @return - a description of every problem found (empty if there are none).
+     */
+    static List<String> validate(Config previous, Config current) {
+        List<String> problems = new ArrayList<>();
+        if (current.featureCount != previous.featureCount || current.featureSize != previous.featureSize)
+            problems.add("the deck cannot change during a game");
+        if (current.humanPlayers != previous.humanPlayers || current.computerPlayers != previous.computerPlayers
+                || !Arrays.equals(current.playerNames, previous.playerNames))
+            problems.add("the players cannot change during a game");
+        if (current.rows != previous.rows || current.columns != previous.columns)
+            problems.add("the table cannot change during a game");
+        if (problems.isEmpty())
+            for (int player = 0; player < current.players; player++)
+                if (!Arrays.equals(current.playerKeys(player), previous.playerKeys(player)))
+                    problems.add("the keys of player " + (player + 1) + " cannot change during a game");
+        if (!current.engine.equals(previous.engine))
+            problems.add("the engine cannot change during a game");
+        if (!current.tablePolicy.equals(previous.tablePolicy))
+            problems.add("the table policy cannot change during a game");
+        if (!current.dealingStrategy.equals(previous.dealingStrategy))
+            problems.add("the dealing strategy cannot change during a game");
+        if (!current.checkpointFile.equals(previous.checkpointFile))
+            problems.add("the checkpoint file cannot change during a game");
+        if (!current.statsFile.equals(previous.statsFile) || current.statsCapacity != previous.statsCapacity)
+            problems.add("the player statistics cannot change during a game");
+        if (current.eventBufferSize != previous.eventBufferSize)
+            problems.add("the event buffer size cannot change during a game");
+        if (current.turnTimeoutWarningMillis < 0)
+            problems.add("negative turn timeout warning");
+        if (current.pointFreezeMillis < 0 || current.penaltyFreezeMillis < 0)
+            problems.add("negative freeze time");
+        if (current.tableDelayMillis < 0)
+            problems.add("negative table delay");
+        if (current.endGamePauseMillies < 0)
+            problems.add("negative end game pause");
+        if (current.countdownFps <= 0)
+            problems.add("non-positive countdown frame rate");
+        return problems;
+    }
+}
@@ -1,5 +1,6 @@
 package bguspl.set;
 
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
 public class Env {
@@ -9,10 +10,45 @@ public class Env {
     public final UserInterface ui;
     public final Util util;
 
+    /**
+     * The changes of the game state as a stream of events, for any number of subscribers (see GameEventStream).
+     * It is also the user interface above: the calls to it are forwarded to the user interface given to the
+     * constructor.
+     */
+    public final GameEventStream events;
+
+    /**
+     * The latest validated configuration snapshot (see ConfigWatcher).
+     */
+    private final AtomicReference<Config> liveConfig;
+
     public Env(Logger logger, Config config, UserInterface ui, Util util) {
         this.logger = logger;
         this.config = config;
-        this.ui = ui;
+        this.events = new GameEventStream(ui, config.eventBufferSize);
+        this.ui = events;
         this.util = util;
+        this.liveConfig = new AtomicReference<>(config);
+    }
+
+    /**
+     * Returns the current configuration snapshot. The structural settings (players, table and deck sizes etc.) of
+     * every snapshot are the same as in the config field; timing settings may change while the game is running, so
+     * they should be read from here when they are used.
+     *
+     * @return - the latest configuration.
+     */
+    public Config liveConfig() {
+        return liveConfig.get();
+    }
+
+    /**
+     * Publishes a new configuration snapshot.
+     *
+     * @param config - the new configuration (must already be validated).
+     * @return - the previous configuration.
+     */
+    Config updateConfig(Config config) {
+        return liveConfig.getAndSet(config);
     }
 }
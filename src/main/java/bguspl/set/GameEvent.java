@@ -0,0 +1,201 @@
+package bguspl.set;
+
+import bguspl.set.ex.Claim.Verdict;
+
+import java.util.Arrays;
+
+/**
+ * An immutable change of the game state, as published by GameEventStream. Every event has the System::nanoTime of
+ * the change, so a subscriber that falls behind can still tell when it happened. The kinds of events are the nested
+ * classes, one per change; subscribers tell them apart with instanceof.
+ */
+public abstract class GameEvent {
+
+    /**
+     * When the change happened (System::nanoTime).
+     */
+    public final long nanos;
+
+    private GameEvent() {
+        nanos = System.nanoTime();
+    }
+
+    /**
+     * A card was placed in a slot.
+     */
+    public static final class CardPlaced extends GameEvent {
+        public final int card;
+        public final int slot;
+
+        CardPlaced(int card, int slot) {
+            this.card = card;
+            this.slot = slot;
+        }
+
+        @Override
+        public String toString() {
+            return "card " + card + " placed in slot " + slot;
+        }
+    }
+
+    /**
+     * The card in a slot was removed.
+     */
+    public static final class CardRemoved extends GameEvent {
+        public final int slot;
+
+        CardRemoved(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public String toString() {
+            return "card removed from slot " + slot;
+        }
+    }
+
+    /**
+     * A player placed or removed a token.
+     */
+    public static final class Token extends GameEvent {
+        public final int player;
+        public final int slot;
+        public final boolean placed;
+
+        Token(int player, int slot, boolean placed) {
+            this.player = player;
+            this.slot = slot;
+            this.placed = placed;
+        }
+
+        @Override
+        public String toString() {
+            return "player " + (player + 1) + (placed ? " placed a token on slot " : " removed a token from slot ") + slot;
+        }
+    }
+
+    /**
+     * All the tokens on a slot (or on the whole table) were removed.
+     */
+    public static final class TokensCleared extends GameEvent {
+        /**
+         * The slot, or -1 for the whole table.
+         */
+        public final int slot;
+
+        TokensCleared(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public String toString() {
+            return slot < 0 ? "all tokens removed" : "tokens removed from slot " + slot;
+        }
+    }
+
+    /**
+     * The score of a player changed.
+     */
+    public static final class Score extends GameEvent {
+        public final int player;
+        public final int score;
+
+        Score(int player, int score) {
+            this.player = player;
+            this.score = score;
+        }
+
+        @Override
+        public String toString() {
+            return "player " + (player + 1) + " score " + score;
+        }
+    }
+
+    /**
+     * The remaining freeze time of a player changed (0 or less when the player is no longer frozen).
+     */
+    public static final class Freeze extends GameEvent {
+        public final int player;
+        public final long millis;
+
+        Freeze(int player, long millis) {
+            this.player = player;
+            this.millis = millis;
+        }
+
+        @Override
+        public String toString() {
+            return "player " + (player + 1) + " frozen for " + millis + "ms";
+        }
+    }
+
+    /**
+     * The turn timer changed: the time left (countdown) or the time since the turn started (elapsed).
+     */
+    public static final class Countdown extends GameEvent {
+        public final long millis;
+        public final boolean elapsed;
+        public final boolean warn;
+
+        Countdown(long millis, boolean elapsed, boolean warn) {
+            this.millis = millis;
+            this.elapsed = elapsed;
+            this.warn = warn;
+        }
+
+        @Override
+        public String toString() {
+            return (elapsed ? "elapsed " : "countdown ") + millis + "ms" + (warn ? " (warning)" : "");
+        }
+    }
+
+    /**
+     * The dealer decided a claim of a player.
+     */
+    public static final class Claim extends GameEvent {
+        public final int player;
+        private final int[] cards;
+        /**
+         * The verdict of the dealer.
+         */
+        public final Verdict verdict;
+
+        Claim(int player, int[] cards, Verdict verdict) {
+            this.player = player;
+            this.cards = cards.clone();
+            this.verdict = verdict;
+        }
+
+        public int[] cards() {
+            return cards.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "player " + (player + 1) + " claimed " + Arrays.toString(cards) + ": " + verdict;
+        }
+    }
+
+    /**
+     * The game ended.
+     */
+    public static final class Winner extends GameEvent {
+        private final int[] players;
+
+        Winner(int[] players) {
+            this.players = players.clone();
+        }
+
+        /**
+         * @return - the ids of the winners (more than one in case of a tie).
+         */
+        public int[] players() {
+            return players.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "winners " + Arrays.toString(players);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package bguspl.set;
+
+import bguspl.set.ex.Claim;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes the changes of the game state as a reactive stream of GameEvents, to any number of subscribers (e.g.
+ * analytics, a network broadcast or a replay log). It is the user interface of the game (see Env): every call is
+ * forwarded to the actual user interface and published as an event; the claims are published by the dealer.
+ * Every subscriber has its own demand (Flow.Subscription::request) and its own bounded buffer, and is called on a
+ * pool thread, never on a game thread. The game never waits for a subscriber: an event that does not fit in the
+ * buffer of a subscriber that is behind is dropped for that subscriber only (see dropped). With no subscribers, no
+ * event is even created.
+ */
+public class GameEventStream implements UserInterface, Flow.Publisher<GameEvent> {
+
+    /**
+     * The threads that call the subscribers of all the streams (daemon threads, so they never keep the game alive).
+     */
+    private static final ExecutorService SUBSCRIBER_THREADS;
+
+    static {
+        AtomicInteger threadCount = new AtomicInteger();
+        SUBSCRIBER_THREADS = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "events-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private final UserInterface ui;
+    private final SubmissionPublisher<GameEvent> publisher;
+
+    /**
+     * The number of events dropped because a subscriber's buffer was full.
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * The class constructor.
+     *
+     * @param ui         - the user interface to forward the calls to (may be null).
+     * @param bufferSize - the maximum number of events buffered for every subscriber (rounded up to a power of two).
+     */
+    public GameEventStream(UserInterface ui, int bufferSize) {
+        this.ui = ui;
+        publisher = new SubmissionPublisher<>(SUBSCRIBER_THREADS, Math.max(1, bufferSize));
+    }
+
+    /**
+     * Adds a subscriber. It gets the events published from the time it subscribes, as it requests them.
+     *
+     * @param subscriber - the subscriber.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super GameEvent> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * @return - true iff the stream has subscribers (so events are created and published).
+     */
+    public boolean hasSubscribers() {
+        return publisher.hasSubscribers();
+    }
+
+    /**
+     * @return - the number of events dropped because a subscriber's buffer was full.
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Publishes an event to every subscriber that has room for it, without waiting.
+     */
+    private void publish(GameEvent event) {
+        try {
+            publisher.offer(event, (subscriber, unused) -> {
+                dropped.increment();
+                return false;
+            });
+        } catch (IllegalStateException closed) {
+            // a late update (e.g. of the countdown thread) after the stream was closed
+        }
+    }
+
+    /**
+     * Publishes the verdict of a claim.
+     *
+     * @param player  - the player id.
+     * @param cards   - the cards of the claim.
+     * @param verdict - the verdict of the dealer.
+     */
+    public void claim(int player, int[] cards, Claim.Verdict verdict) {
+        if (publisher.hasSubscribers())
+            publish(new GameEvent.Claim(player, cards, verdict));
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        if (ui != null) ui.placeCard(card, slot);
+        if (publisher.hasSubscribers())
+            publish(new GameEvent.CardPlaced(card, slot));
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        if (ui != null) ui.removeCard(slot);
+        if (publisher.hasSubscribers())
+            publish(new GameEvent.CardRemoved(slot));
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        if (ui != null) ui.placeToken(player, slot);
+        if (publisher.hasSubscribers())
+            publish(new GameEvent.Token(player, slot, true));
+    }
+
+    @Override
+    public void removeTokens() {
+        if (ui != null) ui.removeTokens();
+        if (publisher.hasSubscribers())
+            publish(new GameEvent.TokensCleared(-1));
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        if (ui != null) ui.removeTokens(slot);
+        if (publisher.hasSubscribers())
+            publish(new GameEvent.TokensCleared(slot));
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        if (ui != null) ui.removeToken(player, slot);
+        if (publisher.hasSubscribers())
+            publish(new GameEvent.Token(player, slot, false));
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        if (ui != null) ui.setCountdown(millies, warn);
+        if (publisher.hasSubscribers())
+            publish(new GameEvent.Countdown(millies, false, warn));
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        if (ui != null) ui.setElapsed(millies);
+        if (publisher.hasSubscribers())
+            publish(new GameEvent.Countdown(millies, true, false));
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        if (ui != null) ui.setFreeze(player, millies);
+        if (publisher.hasSubscribers())
+            publish(new GameEvent.Freeze(player, millies));
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        if (ui != null) ui.setScore(player, score);
+        if (publisher.hasSubscribers())
+            publish(new GameEvent.Score(player, score));
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        if (ui != null) ui.announceWinner(players);
+        if (publisher.hasSubscribers())
+            publish(new GameEvent.Winner(players));
+    }
+
+    /**
+     * Completes the stream, once the game ended: every subscriber gets onComplete after the events already in its
+     * buffer. Later events are not published. Closing a closed stream does nothing.
+     */
+    public void close() {
+        publisher.close();
+    }
+
+    /**
+     * Disposes of the user interface and completes the stream (see close).
+     */
+    @Override
+    public void dispose() {
+        if (ui != null) ui.dispose();
+        close();
+    }
+}
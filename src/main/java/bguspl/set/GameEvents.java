@@ -0,0 +1,120 @@
+package bguspl.set;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of the game, so game activity can be correlated with GC, lock and I/O events.
+ * The events are emitted the usual JFR way: create the event, fill it in only if shouldCommit() (or isEnabled() for
+ * instant events) returns true, and commit it. When no recording is running the checks are constant false once the
+ * code is compiled, and the unused event object is never allocated.
+ * Record with e.g. java -XX:StartFlightRecording=filename=set.jfr -jar Set_Card_Game.jar
+ */
+public final class GameEvents {
+
+    private static final String CATEGORY = "Set Card Game";
+
+    private GameEvents() {
+    }
+
+    @Name("bguspl.set.DealerRound")
+    @Label("Dealer Round")
+    @Description("A round of the dealer, from dealing a fresh table until the cards are returned to the deck")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class DealerRound extends Event {
+        @Label("Round")
+        public int round;
+        @Label("Deck Size")
+        @Description("The number of cards left in the deck when the round ended")
+        public int deckSize;
+        @Label("Points")
+        public int points;
+    }
+
+    @Name("bguspl.set.Reshuffle")
+    @Label("Reshuffle")
+    @Description("The dealer returned the cards on the table to the deck")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class Reshuffle extends Event {
+        @Label("Reason")
+        public String reason;
+        @Label("Cards Returned")
+        public int cardsReturned;
+        @Label("Deck Size")
+        public int deckSize;
+    }
+
+    @Name("bguspl.set.ClaimSubmitted")
+    @Label("Claim Submitted")
+    @Description("A player submitted a claim to the dealer")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class ClaimSubmitted extends Event {
+        @Label("Player")
+        public int player;
+        @Label("Cards")
+        public String cards;
+        @Label("Legal Set")
+        public boolean legalSet;
+    }
+
+    @Name("bguspl.set.ClaimAdjudicated")
+    @Label("Claim Adjudicated")
+    @Description("The dealer gave its verdict on a claim")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class ClaimAdjudicated extends Event {
+        @Label("Player")
+        public int player;
+        @Label("Verdict")
+        public String verdict;
+        @Label("Batch Size")
+        @Description("The number of claims adjudicated together")
+        public int batchSize;
+    }
+
+    @Name("bguspl.set.FindSetsCall")
+    @Label("Find Sets")
+    @Description("A search for legal sets among some cards")
+    @Category(CATEGORY)
+    public static final class FindSetsCall extends Event {
+        @Label("Deck Size")
+        public int deckSize;
+        @Label("Count Requested")
+        public int count;
+        @Label("Sets Returned")
+        public int found;
+    }
+
+    @Name("bguspl.set.TokenToggle")
+    @Label("Token Toggle")
+    @Description("A player placed or removed a token")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class TokenToggle extends Event {
+        @Label("Player")
+        public int player;
+        @Label("Slot")
+        public int slot;
+        @Label("Placed")
+        public boolean placed;
+    }
+
+    @Name("bguspl.set.PlayerFreeze")
+    @Label("Player Freeze")
+    @Description("A player was frozen after a point or a penalty")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    public static final class PlayerFreeze extends Event {
+        @Label("Player")
+        public int player;
+        @Label("Reason")
+        public String reason;
+    }
+}
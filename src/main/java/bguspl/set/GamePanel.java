@@ -0,0 +1,208 @@
+package bguspl.set;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The table card grid. Only the cells inside the clip are painted, and a change repaints only its own cell, so the
+ * paint time depends on the visible area and not on the size of the table. The panel is meant to be shown in a
+ * scroll pane, and can be zoomed (TableZoom, or control + mouse wheel); the card images are scaled once per zoom
+ * level, on first use, so the memory used depends on the deck and not on the table.
+ */
+class GamePanel extends JComponent implements Scrollable {
+
+    private static final double MIN_ZOOM = 0.25;
+    private static final double MAX_ZOOM = 4;
+
+    private final Config config;
+    private final Image emptyCard;
+    private final CompletableFuture<Image[]> deck;
+
+    /**
+     * The card in every slot (-1 for an empty slot).
+     */
+    private final int[] grid;
+    private final TokenOverlay tokens;
+
+    /**
+     * The zoom level (accessed on the event dispatch thread only) and the size of a cell at that level.
+     */
+    private double zoom;
+    private volatile int cellWidth;
+    private volatile int cellHeight;
+
+    /**
+     * The card images scaled to the current zoom level, indexed by card id (the last one is the empty card), or null
+     * if not scaled yet (accessed on the event dispatch thread only).
+     */
+    private Image[] scaled;
+
+    /**
+     * The class constructor.
+     *
+     * @param config - the game configuration.
+     * @param deck   - the image of every card, indexed by card id (possibly not loaded yet).
+     */
+    GamePanel(Config config, CompletableFuture<Image[]> deck) {
+        this.config = config;
+        this.deck = deck;
+        emptyCard = CardImages.load("cards/empty_card.png");
+
+        // init the cards on the table grid as empty cards
+        grid = new int[config.tableSize];
+        Arrays.fill(grid, -1);
+        tokens = new TokenOverlay(config);
+
+        setZoom(config.tableZoom);
+        setOpaque(true);
+        setFocusable(false);
+        enableEvents(AWTEvent.MOUSE_WHEEL_EVENT_MASK);
+        deck.thenRun(() -> EventQueue.invokeLater(() -> {
+            scaled = null; // drop the empty cards scaled in the meantime
+            repaint();
+        }));
+    }
+
+    /**
+     * Changes the zoom level (must be called on the event dispatch thread).
+     *
+     * @param zoom - the new zoom level (1 is the configured cell size).
+     */
+    void setZoom(double zoom) {
+        zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom));
+        if (zoom == this.zoom) return;
+        this.zoom = zoom;
+        cellWidth = Math.max(1, (int) Math.round(config.cellWidth * zoom));
+        cellHeight = Math.max(1, (int) Math.round(config.cellHeight * zoom));
+        scaled = null;
+        setPreferredSize(new Dimension(config.columns * cellWidth, config.rows * cellHeight));
+        revalidate();
+        repaint();
+    }
+
+    double zoom() {
+        return zoom;
+    }
+
+    @Override
+    protected void processMouseWheelEvent(MouseWheelEvent e) {
+        if ((e.getModifiersEx() & InputEvent.CTRL_DOWN_MASK) != 0) {
+            setZoom(zoom * Math.pow(1.1, -e.getPreciseWheelRotation()));
+            e.consume();
+        } else if (getParent() != null)
+            getParent().dispatchEvent(SwingUtilities.convertMouseEvent(this, e, getParent())); // let the scroll pane scroll
+    }
+
+    private Image cardImage(int card) {
+        if (card < 0 || !deck.isDone() || deck.isCompletedExceptionally())
+            card = -1;
+        Image original = card < 0 ? emptyCard : deck.join()[card];
+        if (original == null || (cellWidth == config.cellWidth && cellHeight == config.cellHeight))
+            return original;
+
+        if (scaled == null)
+            scaled = new Image[config.deckSize + 1];
+        int index = card < 0 ? config.deckSize : card;
+        if (scaled[index] == null) {
+            BufferedImage image = new BufferedImage(cellWidth, cellHeight, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = image.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(original, 0, 0, cellWidth, cellHeight, null);
+            g.dispose();
+            scaled[index] = image;
+        }
+        return scaled[index];
+    }
+
+    /**
+     * Repaints a single cell. May be called from any thread (see JComponent::repaint); if the zoom level changes
+     * meanwhile, the whole panel is repainted anyway.
+     */
+    private void repaintCell(int slot) {
+        int width = cellWidth, height = cellHeight;
+        repaint(slot % config.columns * width, slot / config.columns * height, width, height);
+    }
+
+    void placeCard(int slot, int card) {
+        grid[slot] = card;
+        repaintCell(slot);
+    }
+
+    void removeCard(int slot) {
+        grid[slot] = -1;
+        repaintCell(slot);
+    }
+
+    void placeToken(int player, int slot) {
+        if (tokens.set(player, slot, true))
+            repaintCell(slot);
+    }
+
+    void removeTokens() {
+        for (int i = 0; i < config.tableSize; i++)
+            tokens.clear(i);
+        repaint();
+    }
+
+    void removeTokens(int slot) {
+        tokens.clear(slot);
+        repaintCell(slot);
+    }
+
+    void removeToken(int player, int slot) {
+        if (tokens.set(player, slot, false))
+            repaintCell(slot);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null)
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        g.setColor(getBackground() != null ? getBackground() : Color.LIGHT_GRAY);
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        // draw the card images and the tokens on them, for the cells inside the clip only
+        int firstRow = Math.max(0, clip.y / cellHeight);
+        int lastRow = Math.min(config.rows - 1, (clip.y + clip.height - 1) / cellHeight);
+        int firstColumn = Math.max(0, clip.x / cellWidth);
+        int lastColumn = Math.min(config.columns - 1, (clip.x + clip.width - 1) / cellWidth);
+        for (int row = firstRow; row <= lastRow; row++)
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int x = column * cellWidth, y = row * cellHeight, slot = row * config.columns + column;
+                g.drawImage(cardImage(grid[slot]), x, y, cellWidth, cellHeight, this);
+                tokens.paint(g, slot, x, y, cellWidth, cellHeight);
+            }
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        Dimension size = getPreferredSize();
+        return new Dimension(Math.min(size.width, config.maxViewportWidth), Math.min(size.height, config.maxViewportHeight));
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return (orientation == SwingConstants.VERTICAL ? cellHeight : cellWidth) / 4;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
@@ -0,0 +1,236 @@
+package bguspl.set;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A single line of heads-up display text (the timer, a player's name and freeze time, a score): one of a few fixed
+ * labels followed by a short numeric value. The labels are rendered once, and the value is painted from a cached
+ * strip of pre-rendered glyphs, so an update neither formats a string nor lays anything out. Only the glyphs that
+ * changed are repainted, unless the label, the color or the length of the value changed.
+ * The setters may be called from any thread.
+ */
+class HudField extends JComponent {
+
+    /**
+     * The characters a value may contain.
+     */
+    private static final String GLYPHS = "0123456789.:-() ";
+
+    /**
+     * The glyph strips of every font and color, shared by all the fields.
+     */
+    private static final Map<String, GlyphStrip> strips = new ConcurrentHashMap<>();
+
+    /**
+     * The glyphs of a single font and color, rendered side by side in cells of the same width.
+     */
+    private static final class GlyphStrip {
+        final BufferedImage image;
+        final int cellWidth;
+        final int height;
+
+        GlyphStrip(Font font, Color color) {
+            FontMetrics metrics = metrics(font);
+            int width = 0;
+            for (char c : GLYPHS.toCharArray())
+                width = Math.max(width, metrics.charWidth(c));
+            cellWidth = width;
+            height = metrics.getHeight();
+            image = new BufferedImage(cellWidth * GLYPHS.length(), height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = graphics(image, font, color);
+            for (int i = 0; i < GLYPHS.length(); i++)
+                g.drawString(GLYPHS.substring(i, i + 1), i * cellWidth + (cellWidth - metrics.charWidth(GLYPHS.charAt(i))) / 2, metrics.getAscent());
+            g.dispose();
+        }
+
+        void draw(Graphics g, char c, int x, int y) {
+            int i = GLYPHS.indexOf(c);
+            if (i < 0) return;
+            g.drawImage(image, x, y, x + cellWidth, y + height, i * cellWidth, 0, (i + 1) * cellWidth, height, null);
+        }
+    }
+
+    private static FontMetrics metrics(Font font) {
+        Graphics2D g = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        FontMetrics metrics = g.getFontMetrics(font);
+        g.dispose();
+        return metrics;
+    }
+
+    private static Graphics2D graphics(BufferedImage image, Font font, Color color) {
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(font);
+        g.setColor(color);
+        return g;
+    }
+
+    private static GlyphStrip strip(Font font, Color color) {
+        return strips.computeIfAbsent(font + "/" + color.getRGB(), key -> new GlyphStrip(font, color));
+    }
+
+    /**
+     * The glyph strips and the rendered labels, in the normal color [0] and the warning color [1].
+     */
+    private final GlyphStrip[] glyphs;
+    private final BufferedImage[][] labels;
+    private final int height;
+
+    /**
+     * What is shown (guarded by this): the label, the color, and the value (and a scratch buffer for the next one).
+     */
+    private int label;
+    private boolean warn;
+    private char[] value;
+    private int length;
+    private char[] next;
+
+    /**
+     * The class constructor.
+     *
+     * @param font      - the font of the field.
+     * @param maxLength - the maximum number of characters of a value.
+     * @param labels    - the labels the field can show in front of the value.
+     */
+    HudField(Font font, int maxLength, String... labels) {
+        glyphs = new GlyphStrip[]{strip(font, Color.BLACK), strip(font, Color.RED)};
+        height = glyphs[0].height;
+        FontMetrics metrics = metrics(font);
+        this.labels = new BufferedImage[2][labels.length];
+        int labelWidth = 0;
+        for (int i = 0; i < labels.length; i++) {
+            int width = Math.max(1, metrics.stringWidth(labels[i]));
+            labelWidth = Math.max(labelWidth, width);
+            for (int color = 0; color < 2; color++) {
+                BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g = graphics(image, font, color == 0 ? Color.BLACK : Color.RED);
+                g.drawString(labels[i], 0, metrics.getAscent());
+                g.dispose();
+                this.labels[color][i] = image;
+            }
+        }
+        value = new char[maxLength];
+        next = new char[maxLength];
+        setPreferredSize(new Dimension(labelWidth + maxLength * glyphs[0].cellWidth, height));
+        setOpaque(false);
+        setFocusable(false);
+    }
+
+    /**
+     * Shows a label without a value.
+     */
+    void setLabel(int label, boolean warn) {
+        synchronized (this) {
+            update(label, warn, 0);
+        }
+    }
+
+    /**
+     * Shows a label followed by a whole number.
+     */
+    void setNumber(int label, boolean warn, long number) {
+        synchronized (this) {
+            update(label, warn, digits(number, 0, 0));
+        }
+    }
+
+    /**
+     * Shows a label followed by a whole number in parentheses, after a space (e.g. a freeze time).
+     */
+    void setParenthesized(int label, boolean warn, long number) {
+        synchronized (this) {
+            next[0] = ' ';
+            next[1] = '(';
+            int length = digits(number, 0, 2);
+            if (length < next.length)
+                next[length++] = ')';
+            update(label, warn, length);
+        }
+    }
+
+    /**
+     * Shows a label followed by a number of hundredths as a decimal number with 2 decimal places (e.g. 4.27).
+     */
+    void setHundredths(int label, boolean warn, long hundredths) {
+        synchronized (this) {
+            update(label, warn, digits(hundredths, 2, 0));
+        }
+    }
+
+    /**
+     * Writes a non-negative number into the next value buffer, with a decimal point before its last decimals digits.
+     *
+     * @return - the length of the value (the offset plus the digits written).
+     */
+    private int digits(long number, int decimals, int offset) {
+        if (number < 0) number = 0;
+        int count = 1;
+        for (long n = number / 10; n > 0; n /= 10)
+            count++;
+        count = Math.max(count, decimals + 1);
+        int length = Math.min(next.length, offset + count + (decimals > 0 ? 1 : 0));
+        int position = length - 1;
+        for (int digit = 0; position >= offset; digit++) {
+            if (decimals > 0 && digit == decimals) {
+                next[position--] = '.';
+                if (position < offset) break;
+            }
+            next[position--] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        return length;
+    }
+
+    /**
+     * Swaps in the next value and repaints what changed (must hold the lock).
+     */
+    private void update(int label, boolean warn, int length) {
+        if (label != this.label || warn != this.warn || length != this.length) {
+            this.label = label;
+            this.warn = warn;
+            this.length = length;
+            char[] swap = value;
+            value = next;
+            next = swap;
+            repaint();
+            return;
+        }
+        int cellWidth = glyphs[0].cellWidth, x = offset() + labels[0][label].getWidth(), y = top();
+        for (int i = 0; i < length; i++)
+            if (value[i] != next[i]) {
+                value[i] = next[i];
+                repaint(x + i * cellWidth, y, cellWidth, height);
+            }
+    }
+
+    /**
+     * @return - the left of the text, so it is centered in the field.
+     */
+    private int offset() {
+        return Math.max(0, (getWidth() - labels[0][label].getWidth() - length * glyphs[0].cellWidth) / 2);
+    }
+
+    /**
+     * @return - the top of the text, so it is centered in the field.
+     */
+    private int top() {
+        return Math.max(0, (getHeight() - height) / 2);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        synchronized (this) {
+            int color = warn ? 1 : 0;
+            int x = offset(), y = top();
+            BufferedImage image = labels[color][label];
+            g.drawImage(image, x, y, null);
+            x += image.getWidth();
+            for (int i = 0; i < length; i++, x += glyphs[color].cellWidth)
+                glyphs[color].draw(g, value[i], x, y);
+        }
+    }
+}
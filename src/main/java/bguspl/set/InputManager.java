@@ -40,11 +40,12 @@ class InputManager extends KeyAdapter {
     @Override
     public void keyPressed(KeyEvent e) {
         // dispatch the key event to the player according to the key map
+        // stamp it first, and only hand it over to the player thread here (it logs it), so the EDT never blocks
+        long pressedAt = System.nanoTime();
         int keyCode = e.getKeyCode();
+        if (keyCode < 0 || keyCode >= keyMap.length) return;
         int player = keyMap[keyCode] - 1;
-        if (player >= 0){
-            logger.severe("key " + keyCode + " was pressed by player " + (player + 1));
-            players[player].keyPressed(keyToSlot[keyCode]);
-        }
+        if (player >= 0)
+            players[player].keyPressedAt(keyToSlot[keyCode], pressedAt);
     }
 }
@@ -0,0 +1,80 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies (in nanoseconds) with one bucket per power of two, safe to record into from any number of
+ * threads without locking. Percentiles are reported as the upper bound of the bucket they fall into, so they are
+ * accurate to within a factor of two.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Bucket i counts the latencies in [2^(i-1), 2^i) (bucket 0 counts the latencies of 0).
+     */
+    private final LongAdder[] buckets = new LongAdder[Long.SIZE];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++)
+            buckets[i] = new LongAdder();
+    }
+
+    /**
+     * Records a single latency.
+     *
+     * @param nanos - the latency in nanoseconds (negative values are recorded as 0).
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        buckets[Long.SIZE - Long.numberOfLeadingZeros(nanos)].increment();
+        count.increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * @return - the mean latency in nanoseconds (0 if nothing was recorded).
+     */
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @param fraction - the percentile as a fraction (e.g. 0.99).
+     * @return - an upper bound of the given percentile in nanoseconds (0 if nothing was recorded).
+     */
+    public long percentile(double fraction) {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++)
+            total += counts[i] = buckets[i].sum();
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return i == 0 ? 0 : Math.min(max(), (1L << i) - 1);
+        }
+        return max();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.1fus p50<=%.1fus p90<=%.1fus p99<=%.1fus max=%.1fus", count(), mean() / 1000,
+                percentile(0.5) / 1000.0, percentile(0.9) / 1000.0, percentile(0.99) / 1000.0, max() / 1000.0);
+    }
+}
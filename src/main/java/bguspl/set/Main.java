@@ -1,15 +1,22 @@
 package bguspl.set;
 
+import bguspl.set.ex.Checkpoint;
 import bguspl.set.ex.Dealer;
 import bguspl.set.ex.Player;
 import bguspl.set.ex.Table;
 
+import java.awt.Image;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.*;
 
 /**
@@ -20,6 +27,11 @@ public class Main {
     private static Dealer dealer;
     private static Thread mainThread;
 
+    private static final String CONFIG_FILENAME = "config.properties";
+
+    private static final String USAGE = "usage: Main [--fast-start] [--resume] [--tournament N [--parallel P] [--out PATH]]"
+            + " [--leaderboard N]";
+
     private static boolean xButtonPressed = false;
     private static Logger logger;
 
@@ -33,56 +45,253 @@ public class Main {
     /**
      * The game's main function. Creates all data structures and initializes the threads.
      *
-     * @param args - unused.
+     * @param args - optional flags: "--fast-start" loads the card images in the background, in parallel, while the
+     *             rest of the game is being created. "--tournament N" plays N games without a user interface instead
+     *             (see Tournament), "--parallel P" plays P of them at a time (default: one per core) and
+     *             "--out PATH" writes the results to PATH.csv and PATH.json (default: tournament). "--resume"
+     *             resumes the game from its latest checkpoint (see CheckpointFile), if there is one.
+     *             "--leaderboard N" prints the N best players by lifetime points (see StatsFile) instead of playing.
      */
     public static void main(String[] args) {
 
         mainThread = Thread.currentThread();
+        boolean fastStart = Arrays.asList(args).contains("--fast-start");
+        int leaderboard, tournamentGames, parallelism;
+        String output;
+        try {
+            leaderboard = intOption(args, "--leaderboard", 0);
+            tournamentGames = intOption(args, "--tournament", 0);
+            parallelism = intOption(args, "--parallel", Runtime.getRuntime().availableProcessors());
+            output = stringOption(args, "--out", "tournament");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(USAGE);
+            return;
+        }
+        StartupTimeline timeline = new StartupTimeline();
 
         // create the game environment objects
+        StartupTimeline.Phase phase = timeline.begin("logger");
         logger = initLogger();
         ThreadLogger.logStart(logger, Thread.currentThread().getName());
-        Config config = new Config(logger, "config.properties");
-        Util util = new UtilImpl(config);
+        phase.end();
+
+        phase = timeline.begin("config");
+        Config config;
+        try {
+            config = new Config(logger, CONFIG_FILENAME);
+        } catch (IllegalArgumentException e) {
+            String message = "invalid configuration file " + CONFIG_FILENAME + ": " + e.getMessage();
+            logger.severe(message);
+            System.out.println(message);
+            return;
+        }
+        phase.end();
+
+        CompletableFuture<Image[]> cardImages = null;
+        if (fastStart) {
+            StartupTimeline.Phase imagesPhase = timeline.begin("card images (async)");
+            cardImages = CardImages.loadDeckAsync(config).whenComplete((images, e) -> {
+                imagesPhase.end();
+                if (e != null) logger.severe("error loading the card images: " + e.getMessage());
+            });
+        }
+
+        phase = timeline.begin("util");
+        Util util = new UtilImpl(config, logger);
+        phase.end();
+
+        if (leaderboard > 0) {
+            printLeaderboard(config, leaderboard);
+            return;
+        }
+
+        PlayerStatsStore playerStats = openPlayerStats(config);
+        if (tournamentGames > 0) {
+            runTournament(Config.forTournament(logger, CONFIG_FILENAME), util, playerStats, tournamentGames, parallelism,
+                    output);
+            closePlayerStats(playerStats);
+            return;
+        }
 
+        phase = timeline.begin("user interface");
         Player[] players = new Player[config.players];
         UserInterface ui = null;
         try {
-            ui = new UserInterfaceSwing(logger, config, players);
+            ui = fastStart ? new UserInterfaceSwing(logger, config, players, cardImages)
+                    : new UserInterfaceSwing(logger, config, players);
         } catch (UnsupportedOperationException | IllegalArgumentException e) {
             logger.severe("error creating swing user interface: " + e.getMessage());
             logger.severe("will try to run without user interface");
             if (config.humanPlayers > 0)
                 logger.severe("warning: running with human players with no user interface");
         }
-        ui = new UserInterfaceDecorator(logger, util, ui);
+        if (ui == null) System.out.println("running without a user interface. Check logs.");
+        if (config.uiQueueCapacity > 0) {
+            // the window and the log each get their own queue and thread, off the game threads
+            UserInterfaceDispatcher dispatcher = new UserInterfaceDispatcher(logger);
+            if (ui != null)
+                dispatcher.addSink("window", ui, config.uiQueueCapacity, UserInterfaceDispatcher.OverflowPolicy.COALESCE_LATEST);
+            dispatcher.addSink("log", new UserInterfaceDecorator(logger, util, null), config.uiQueueCapacity,
+                    UserInterfaceDispatcher.OverflowPolicy.BLOCK);
+            ui = dispatcher;
+        } else
+            ui = new UserInterfaceDecorator(logger, util, ui);
+        phase.end();
 
         Env env = new Env(logger, config, ui, util);
 
         // create the game entities
+        phase = timeline.begin("game entities");
         Table table = new Table(env);
         dealer = new Dealer(env, table, players);
         for (int i = 0; i < players.length; i++)
             players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+        if (!config.checkpointFile.isEmpty()) {
+            Path checkpointFile = Paths.get(config.checkpointFile);
+            if (Arrays.asList(args).contains("--resume")) {
+                if (Files.isRegularFile(checkpointFile)) try {
+                    dealer.resumeFrom(Checkpoint.read(checkpointFile));
+                } catch (IOException | IllegalArgumentException e) {
+                    logger.severe("cannot resume from " + checkpointFile + ", starting a new game: " + e.getMessage());
+                }
+                else logger.warning("no checkpoint to resume from at " + checkpointFile + ", starting a new game");
+            }
+            dealer.checkpointTo(checkpointFile);
+        } else if (Arrays.asList(args).contains("--resume"))
+            logger.warning("cannot resume: checkpoints are disabled (CheckpointFile is empty)");
+        if (playerStats != null)
+            dealer.recordStatsTo(playerStats);
+        phase.end();
+
+        // reload the timing settings whenever the configuration file changes
+        ConfigWatcher configWatcher = null;
+        if (Files.isRegularFile(Paths.get(CONFIG_FILENAME))) try {
+            configWatcher = new ConfigWatcher(env, Paths.get(CONFIG_FILENAME));
+            configWatcher.addListener((previous, current) -> dealer.wakeUp());
+            configWatcher.start();
+        } catch (IOException e) {
+            logger.severe("cannot watch configuration file " + CONFIG_FILENAME + ": " + e.getMessage());
+        }
 
-        // start the dealer thread
+        // start the dealer thread (which starts all the player threads)
+        phase = timeline.begin("dealer and players");
         ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
         dealerThread.startWithLog();
 
         try {
+            dealer.awaitPlayersStarted();
+            phase.end();
+            if (cardImages != null) cardImages.handle((images, e) -> null).join();
+            timeline.report(logger, config.startupBudgetMillis);
+
             // shutdown stuff
             dealerThread.joinWithLog();
+            env.events.close();
             if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
         } catch (InterruptedException ignored) {
         } finally {
             logger.severe("thanks for playing... it was fun!");
             System.out.println("Thanks for playing... it was fun!");
             ThreadLogger.logStop(logger, Thread.currentThread().getName());
+            if (configWatcher != null) configWatcher.close();
+            closePlayerStats(playerStats);
+            env.events.close();
             if (!xButtonPressed) env.ui.dispose();
             for (Handler h : logger.getHandlers()) h.flush();
         }
     }
 
+    /**
+     * Plays a tournament and prints its results.
+     */
+    private static void runTournament(Config config, Util util, PlayerStatsStore playerStats, int games, int parallelism,
+                                      String output) {
+        // thread start and stop messages of thousands of games are of no interest
+        logger.setLevel(Level.WARNING);
+        System.out.printf("playing %d games, %d at a time...%n", games, parallelism);
+        long start = System.nanoTime();
+        try {
+            Tournament tournament = new Tournament(logger, config, util, games, parallelism);
+            if (playerStats != null)
+                tournament.recordStatsTo(playerStats);
+            TournamentStats stats = tournament.run(output);
+            System.out.print(stats);
+            System.out.printf("%d games in %.1f seconds, results written to %s.csv and %s.json%n", stats.games(),
+                    (System.nanoTime() - start) / 1e9, output, output);
+        } catch (IOException e) {
+            logger.severe("cannot write the tournament results: " + e.getMessage());
+            System.out.println("cannot write the tournament results: " + e.getMessage());
+        } catch (InterruptedException ignored) {
+        } finally {
+            for (Handler h : logger.getHandlers()) h.flush();
+        }
+    }
+
+    /**
+     * Opens the lifetime statistics of the players (see StatsFile).
+     *
+     * @return - the statistics store, or null if they are disabled or cannot be opened.
+     */
+    private static PlayerStatsStore openPlayerStats(Config config) {
+        if (config.statsFile.isEmpty())
+            return null;
+        try {
+            return new PlayerStatsStore(Paths.get(config.statsFile), config.statsCapacity);
+        } catch (IOException e) {
+            logger.severe("cannot open the player statistics " + config.statsFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void closePlayerStats(PlayerStatsStore playerStats) {
+        if (playerStats != null) try {
+            playerStats.close();
+        } catch (IOException e) {
+            logger.severe("cannot write the player statistics " + playerStats + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prints the best players by their lifetime points.
+     */
+    private static void printLeaderboard(Config config, int count) {
+        PlayerStatsStore playerStats = config.statsFile.isEmpty() || !Files.isRegularFile(Paths.get(config.statsFile))
+                ? null : openPlayerStats(config);
+        if (playerStats == null) {
+            System.out.println("no player statistics (see StatsFile)");
+            return;
+        }
+        List<PlayerStatsStore.Entry> best = playerStats.leaderboard(count, PlayerStatsStore.Cursor::points);
+        for (int rank = 0; rank < best.size(); rank++)
+            System.out.printf("%3d. %s%n", rank + 1, best.get(rank));
+        closePlayerStats(playerStats);
+    }
+
+    /**
+     * @throws IllegalArgumentException - if the option is the last argument, with no value.
+     */
+    private static String stringOption(String[] args, String name, String defaultValue) {
+        int i = Arrays.asList(args).indexOf(name);
+        if (i < 0)
+            return defaultValue;
+        if (i + 1 == args.length)
+            throw new IllegalArgumentException("missing value for " + name);
+        return args[i + 1];
+    }
+
+    /**
+     * @throws IllegalArgumentException - if the value of the option is not a number.
+     */
+    private static int intOption(String[] args, String name, int defaultValue) {
+        String value = stringOption(args, name, Integer.toString(defaultValue));
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid value for " + name + ": " + value);
+        }
+    }
+
     private static Logger initLogger() {
 
         //just to make our log file nicer :)
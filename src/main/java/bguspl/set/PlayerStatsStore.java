@@ -0,0 +1,446 @@
+package bguspl.set;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The lifetime statistics of every player, by name, kept in a memory-mapped file of fixed-size records, so they
+ * survive the game and can be shared by any number of games (and processes) at the same time.
+ * The records form an open-addressing hash table (linear probing on a 64-bit hash of the name). A record is claimed
+ * by a compare-and-set of its key, and its counters are updated by atomic adds on the mapped memory, so there are no
+ * locks; each counter is exact, but a reader may see a game half-added (e.g. its points, but not its penalties yet).
+ * Scans read the records straight from the mapping, one at a time, so a leaderboard never loads the whole file.
+ * <p>
+ * File layout (little endian): a header of HEADER_SIZE bytes (magic, version, record size, capacity), followed by
+ * capacity records of RECORD_SIZE bytes: the key (0 for a free record, minus the System::currentTimeMillis of the
+ * claim while it is being claimed, the positive hash of the name otherwise), the length of the name and its UTF-8
+ * bytes (at most MAX_NAME_BYTES), and the counters.
+ * A claim takes microseconds, so a claim older than STALE_CLAIM_MILLIS was abandoned (its process died before it
+ * wrote the name) and is taken over by the next process that probes the record.
+ */
+public class PlayerStatsStore implements Closeable {
+
+    private static final long MAGIC = 0x5345545354415453L; // "SETSTATS"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 128;
+    private static final int MAX_NAME_BYTES = 48;
+    private static final long FREE = 0;
+    private static final long STALE_CLAIM_MILLIS = 5000;
+
+    /**
+     * The maximum number of records, so the whole file fits in a single mapping (of at most 2GB).
+     */
+    public static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+    private static final int KEY = 0, NAME_LENGTH = 8, NAME = 16;
+
+    /**
+     * The counters of a record, at COUNTERS + 8 * counter.
+     */
+    private static final int COUNTERS = 64;
+    private static final int GAMES = 0, POINTS = 1, PENALTIES = 2, WINS = 3, TIES = 4, CLAIMS = 5, CLAIM_NANOS = 6,
+            PLAY_NANOS = 7;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path file;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    /**
+     * The record of every name looked up so far by this process.
+     */
+    private final Map<String, Integer> records = new ConcurrentHashMap<>();
+
+    /**
+     * Opens a statistics file, creating it with the given capacity if it does not exist.
+     *
+     * @param file     - the statistics file.
+     * @param capacity - the number of records of a new file (an existing file keeps its own).
+     * @throws IOException - if the file cannot be opened, it is not a statistics file, or the capacity is not between 1
+     *                     and MAX_CAPACITY.
+     */
+    public PlayerStatsStore(Path file, int capacity) throws IOException {
+        this.file = file;
+        raf = new RandomAccessFile(file.toFile(), "rw");
+        try {
+            boolean created = raf.length() == 0;
+            if (created) {
+                if (capacity <= 0 || capacity > MAX_CAPACITY)
+                    throw new IOException("the capacity of " + file + " must be between 1 and " + MAX_CAPACITY);
+                raf.setLength(HEADER_SIZE + (long) capacity * RECORD_SIZE);
+            } else {
+                if (raf.length() < HEADER_SIZE)
+                    throw new IOException(file + " is not a player statistics file");
+                raf.seek(0);
+                byte[] header = new byte[HEADER_SIZE];
+                raf.readFully(header);
+                ByteBuffer view = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+                if (view.getLong(0) != MAGIC || view.getInt(8) != VERSION || view.getInt(12) != RECORD_SIZE)
+                    throw new IOException(file + " is not a player statistics file (or has another version)");
+                capacity = view.getInt(16);
+                if (capacity <= 0 || capacity > MAX_CAPACITY)
+                    throw new IOException(file + " has an invalid capacity: " + capacity);
+                if (raf.length() < HEADER_SIZE + (long) capacity * RECORD_SIZE)
+                    throw new IOException(file + " is truncated");
+            }
+            this.capacity = capacity;
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (created) {
+                buffer.putInt(8, VERSION);
+                buffer.putInt(12, RECORD_SIZE);
+                buffer.putInt(16, capacity);
+                buffer.putLong(0, MAGIC);
+            }
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return - the number of records in the file.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    private static long offset(int record) {
+        return HEADER_SIZE + (long) record * RECORD_SIZE;
+    }
+
+    private static int counter(int record, int counter) {
+        return (int) offset(record) + COUNTERS + 8 * counter;
+    }
+
+    /**
+     * @return - the UTF-8 bytes of a name as stored in a record (cut to MAX_NAME_BYTES, on a character boundary).
+     */
+    private static byte[] nameBytes(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_NAME_BYTES)
+            return bytes;
+        int length = MAX_NAME_BYTES;
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) // do not cut a character in two
+            length--;
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * @return - a positive 63-bit hash of the stored name (FNV-1a, then a finalizer).
+     */
+    private static long hash(byte[] name) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : name)
+            h = (h ^ (b & 0xFF)) * 0x100000001b3L;
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) & Long.MAX_VALUE;
+        return h == FREE ? 1 : h;
+    }
+
+    private boolean nameEquals(int record, byte[] name) {
+        int base = (int) offset(record);
+        if (buffer.getInt(base + NAME_LENGTH) != name.length)
+            return false;
+        for (int i = 0; i < name.length; i++)
+            if (buffer.get(base + NAME + i) != name[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Finds the record of a name, claiming a free one if it has none.
+     *
+     * @return - the record, or -1 if the file is full.
+     */
+    private int record(String name) {
+        Integer known = records.get(name);
+        if (known != null)
+            return known;
+        byte[] bytes = nameBytes(name);
+        long key = hash(bytes);
+        int start = (int) Long.remainderUnsigned(key, capacity);
+        for (int probe = 0; probe < capacity; probe++) {
+            int record = (start + probe) % capacity;
+            int base = (int) offset(record);
+            long current = (long) LONGS.getAcquire(buffer, base + KEY);
+            while (current <= FREE) { // free, or being claimed by another thread: claim it, or wait for the name
+                long now = System.currentTimeMillis();
+                boolean stale = current < FREE && now + current > STALE_CLAIM_MILLIS;
+                long claim = -Math.max(1, now);
+                if ((current == FREE || stale) && LONGS.compareAndSet(buffer, base + KEY, current, claim)
+                        && claim(record, bytes, key, claim)) {
+                    records.put(name, record);
+                    return record;
+                }
+                if (current < FREE && !stale)
+                    Thread.yield();
+                current = (long) LONGS.getAcquire(buffer, base + KEY);
+            }
+            if (current == key && nameEquals(record, bytes)) {
+                records.put(name, record);
+                return record;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the name of a record claimed by this thread and publishes its key.
+     *
+     * @return - false iff the claim was taken over as stale in the meantime.
+     */
+    private boolean claim(int record, byte[] name, long key, long claim) {
+        int base = (int) offset(record);
+        buffer.putInt(base + NAME_LENGTH, name.length);
+        for (int i = 0; i < name.length; i++)
+            buffer.put(base + NAME + i, name[i]);
+        return LONGS.compareAndSet(buffer, base + KEY, claim, key); // publishes the name
+    }
+
+    /**
+     * Adds the result of a single game of a player.
+     *
+     * @param name       - the name of the player.
+     * @param points     - the points the player got in the game.
+     * @param penalties  - the penalties the player got in the game.
+     * @param won        - true iff the player had the best score.
+     * @param tie        - true iff other players had the same best score.
+     * @param claims     - the number of claims the dealer decided for the player.
+     * @param claimNanos - the total time the claims waited for their verdict, in nanoseconds.
+     * @param playNanos  - the length of the game, in nanoseconds.
+     * @return - false iff the file is full and has no record for the player.
+     */
+    public boolean addGame(String name, long points, long penalties, boolean won, boolean tie, long claims,
+                           long claimNanos, long playNanos) {
+        int record = record(name);
+        if (record < 0)
+            return false;
+        add(record, POINTS, points);
+        add(record, PENALTIES, penalties);
+        if (won)
+            add(record, tie ? TIES : WINS, 1);
+        add(record, CLAIMS, claims);
+        add(record, CLAIM_NANOS, claimNanos);
+        add(record, PLAY_NANOS, playNanos);
+        add(record, GAMES, 1);
+        return true;
+    }
+
+    private void add(int record, int counter, long delta) {
+        if (delta != 0)
+            LONGS.getAndAdd(buffer, counter(record, counter), delta);
+    }
+
+    private long get(int record, int counter) {
+        return (long) LONGS.getOpaque(buffer, counter(record, counter));
+    }
+
+    /**
+     * Reads the record of a player.
+     *
+     * @param name - the name of the player.
+     * @return - the statistics of the player, or null if the player has none.
+     */
+    public Entry get(String name) {
+        Integer known = records.get(name);
+        if (known != null)
+            return entry(known);
+        byte[] bytes = nameBytes(name);
+        long key = hash(bytes);
+        int start = (int) Long.remainderUnsigned(key, capacity);
+        for (int probe = 0; probe < capacity; probe++) {
+            int record = (start + probe) % capacity;
+            long current = (long) LONGS.getAcquire(buffer, (int) offset(record) + KEY);
+            if (current == FREE)
+                return null;
+            if (current == key && nameEquals(record, bytes))
+                return entry(record);
+        }
+        return null;
+    }
+
+    private Entry entry(int record) {
+        int base = (int) offset(record);
+        byte[] name = new byte[Math.min(MAX_NAME_BYTES, Math.max(0, buffer.getInt(base + NAME_LENGTH)))];
+        for (int i = 0; i < name.length; i++)
+            name[i] = buffer.get(base + NAME + i);
+        return new Entry(new String(name, StandardCharsets.UTF_8), get(record, GAMES), get(record, POINTS),
+                get(record, PENALTIES), get(record, WINS), get(record, TIES), get(record, CLAIMS),
+                get(record, CLAIM_NANOS), get(record, PLAY_NANOS));
+    }
+
+    /**
+     * A view of the record under a scan cursor, read straight from the file.
+     */
+    public interface Cursor {
+        long games();
+
+        long points();
+
+        long penalties();
+
+        long wins();
+
+        /**
+         * @return - a copy of the record (including its name).
+         */
+        Entry entry();
+    }
+
+    /**
+     * Visits the records in a range of the file, one at a time, without copying them.
+     *
+     * @param from    - the first record to visit.
+     * @param to      - the record after the last one to visit.
+     * @param visitor - called with a cursor on every claimed record in the range (the cursor is only valid during
+     *                the call).
+     */
+    public void scan(int from, int to, Consumer<Cursor> visitor) {
+        int[] current = new int[1];
+        Cursor cursor = new Cursor() {
+            public long games() {
+                return get(current[0], GAMES);
+            }
+
+            public long points() {
+                return get(current[0], POINTS);
+            }
+
+            public long penalties() {
+                return get(current[0], PENALTIES);
+            }
+
+            public long wins() {
+                return get(current[0], WINS);
+            }
+
+            public Entry entry() {
+                return PlayerStatsStore.this.entry(current[0]);
+            }
+        };
+        for (int record = Math.max(0, from); record < Math.min(to, capacity); record++) {
+            long key = (long) LONGS.getAcquire(buffer, (int) offset(record) + KEY);
+            if (key > FREE) {
+                current[0] = record;
+                visitor.accept(cursor);
+            }
+        }
+    }
+
+    /**
+     * Returns the best players by some statistic, scanning the whole file but keeping only the best count of them.
+     *
+     * @param count - the maximum number of players to return.
+     * @param by    - the statistic to rank by (higher is better), read from the cursor.
+     * @return - the best players, best first.
+     */
+    public List<Entry> leaderboard(int count, ToDoubleFunction<Cursor> by) {
+        if (count <= 0)
+            return Collections.emptyList();
+        PriorityQueue<Object[]> best = new PriorityQueue<>(count + 1, Comparator.comparingDouble(pair -> (double) pair[0]));
+        scan(0, capacity, cursor -> {
+            double value = by.applyAsDouble(cursor);
+            if (best.size() < count || value > (double) best.peek()[0]) {
+                best.add(new Object[]{value, cursor.entry()});
+                if (best.size() > count)
+                    best.poll();
+            }
+        });
+        List<Entry> top = new ArrayList<>(best.size());
+        while (!best.isEmpty())
+            top.add((Entry) best.poll()[1]);
+        Collections.reverse(top);
+        return top;
+    }
+
+    /**
+     * Writes the changes to the disk.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        raf.close();
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+
+    /**
+     * An immutable copy of the statistics of a player.
+     */
+    public static final class Entry {
+        public final String name;
+        public final long games;
+        public final long points;
+        public final long penalties;
+        public final long wins;
+        public final long ties;
+        public final long claims;
+        public final long claimNanos;
+        public final long playNanos;
+
+        Entry(String name, long games, long points, long penalties, long wins, long ties, long claims, long claimNanos,
+              long playNanos) {
+            this.name = name;
+            this.games = games;
+            this.points = points;
+            this.penalties = penalties;
+            this.wins = wins;
+            this.ties = ties;
+            this.claims = claims;
+            this.claimNanos = claimNanos;
+            this.playNanos = playNanos;
+        }
+
+        /**
+         * @return - the mean time a claim waited for its verdict, in microseconds.
+         */
+        public double meanClaimMicros() {
+            return claims == 0 ? 0 : claimNanos / 1e3 / claims;
+        }
+
+        /**
+         * @return - the sets found per minute of play.
+         */
+        public double setsPerMinute() {
+            return playNanos == 0 ? 0 : points * 60e9 / playNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%-16s %8d games %8d points %8d penalties %6d wins %6d ties %10.1fus/claim %8.2f sets/min",
+                    name, games, points, penalties, wins, ties, meanClaimMicros(), setsPerMinute());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Records how long each phase of the game's startup took. Phases may run concurrently on different threads.
+ */
+public class StartupTimeline {
+
+    /**
+     * The time the timeline was created (in nanoseconds, see System::nanoTime).
+     */
+    private final long origin;
+
+    /**
+     * All the phases that ended so far.
+     */
+    private final ConcurrentLinkedQueue<Phase> phases = new ConcurrentLinkedQueue<>();
+
+    public StartupTimeline() {
+        origin = System.nanoTime();
+    }
+
+    /**
+     * Starts a new phase on the current thread.
+     *
+     * @param name - the name of the phase.
+     * @return - the phase (call Phase::end when it is over).
+     */
+    public Phase begin(String name) {
+        return new Phase(name);
+    }
+
+    /**
+     * @return - the number of milliseconds since the timeline was created.
+     */
+    public long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - origin);
+    }
+
+    /**
+     * Logs every phase (start offset, duration and thread) and the total startup time.
+     *
+     * @param logger       - the logger to write the report to.
+     * @param budgetMillis - the startup time budget in milliseconds (0 or less for no budget).
+     */
+    public void report(Logger logger, long budgetMillis) {
+        long total = elapsedMillis();
+        List<Phase> ended = new ArrayList<>(phases);
+        ended.sort(Comparator.comparingLong(phase -> phase.start));
+        StringBuilder sb = new StringBuilder("startup timeline:");
+        for (Phase phase : ended)
+            sb.append(String.format("%n  %-20s +%5d ms  %5d ms  [%s]", phase.name,
+                    TimeUnit.NANOSECONDS.toMillis(phase.start - origin),
+                    TimeUnit.NANOSECONDS.toMillis(phase.end - phase.start), phase.thread));
+        sb.append(String.format("%n  %-20s %14d ms", "total", total));
+        logger.info(sb.toString());
+        if (budgetMillis > 0 && total > budgetMillis)
+            logger.severe("warning: startup took " + total + " ms, over the budget of " + budgetMillis + " ms.");
+    }
+
+    /**
+     * A single startup phase.
+     */
+    public class Phase {
+
+        private final String name;
+        private final String thread;
+        private final long start;
+        private long end;
+
+        private Phase(String name) {
+            this.name = name;
+            this.thread = Thread.currentThread().getName();
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * Marks the end of the phase.
+         */
+        public void end() {
+            end = System.nanoTime();
+            phases.add(this);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package bguspl.set;
+
+import java.awt.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The tokens on the table, kept as a bitmask of players per cell and painted as colored chips marked with the
+ * player's initial. Changing a token only flips a bit, and painting only reads the bits, so neither allocates
+ * anything or involves Swing layout. The bits may be changed from any thread and painted on the event dispatch
+ * thread.
+ */
+class TokenOverlay {
+
+    /**
+     * The number of 64 bit words of the bitmask of a single cell.
+     */
+    private final int words;
+
+    /**
+     * The bitmask of every cell: bit (player % 64) of word (slot * words + player / 64).
+     */
+    private final AtomicLongArray tokens;
+
+    /**
+     * The color and the initial of every player's chip.
+     */
+    private final Color[] colors;
+    private final char[] initials;
+
+    private final int chipSize;
+    private final Font font;
+
+    /**
+     * The class constructor.
+     *
+     * @param config - the game configuration.
+     */
+    TokenOverlay(Config config) {
+        int players = config.players;
+        words = (players + Long.SIZE - 1) / Long.SIZE;
+        tokens = new AtomicLongArray(config.tableSize * words);
+
+        colors = new Color[players];
+        initials = new char[players];
+        for (int player = 0; player < players; player++) {
+            // spread the hues by the golden ratio, so neighbouring players get distinct colors
+            colors[player] = Color.getHSBColor((player * 0.618034f) % 1, 0.75f, 0.9f);
+            String name = config.playerNames[player].trim();
+            initials[player] = name.isEmpty() ? Character.forDigit((player + 1) % 10, 10) : Character.toUpperCase(name.charAt(0));
+        }
+
+        chipSize = Math.max(12, Math.min(32, Math.min(config.cellWidth, config.cellHeight) / 6));
+        font = new Font("SansSerif", Font.BOLD, chipSize * 2 / 3);
+    }
+
+    /**
+     * Places or removes the token of a player.
+     *
+     * @return - true iff the token changed.
+     */
+    boolean set(int player, int slot, boolean placed) {
+        int index = slot * words + player / Long.SIZE;
+        long bit = 1L << (player % Long.SIZE);
+        while (true) {
+            long mask = tokens.get(index);
+            long updated = placed ? mask | bit : mask & ~bit;
+            if (updated == mask) return false;
+            if (tokens.compareAndSet(index, mask, updated)) return true;
+        }
+    }
+
+    /**
+     * Removes all the tokens from a cell.
+     */
+    void clear(int slot) {
+        for (int word = 0; word < words; word++)
+            tokens.set(slot * words + word, 0);
+    }
+
+    /**
+     * Paints the chips of the players that have a token on a cell, left to right and top to bottom from the top of
+     * the cell, and the border of the cell.
+     *
+     * @param g    - the graphics to paint with.
+     * @param slot - the slot of the cell.
+     * @param x    - the left of the cell.
+     * @param y    - the top of the cell.
+     * @param w    - the width of the cell.
+     * @param h    - the height of the cell.
+     */
+    void paint(Graphics g, int slot, int x, int y, int w, int h) {
+        g.setColor(Color.BLACK);
+        g.drawRect(x, y, w - 1, h - 1);
+
+        int gap = 2;
+        int perRow = Math.max(1, (w - gap) / (chipSize + gap));
+        int chip = 0;
+        FontMetrics metrics = null;
+        for (int word = 0; word < words; word++) {
+            long mask = tokens.get(slot * words + word);
+            while (mask != 0) {
+                int player = word * Long.SIZE + Long.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+                int chipX = x + gap + (chip % perRow) * (chipSize + gap);
+                int chipY = y + gap + (chip / perRow) * (chipSize + gap);
+                chip++;
+                if (chipY + chipSize > y + h) return; // no room for more chips
+
+                g.setColor(colors[player]);
+                g.fillOval(chipX, chipY, chipSize, chipSize);
+                g.setColor(Color.BLACK);
+                g.drawOval(chipX, chipY, chipSize, chipSize);
+                if (metrics == null) {
+                    g.setFont(font);
+                    metrics = g.getFontMetrics();
+                }
+                g.drawChars(initials, player, 1, chipX + (chipSize - metrics.charWidth(initials[player])) / 2,
+                        chipY + (chipSize - metrics.getHeight()) / 2 + metrics.getAscent());
+            }
+        }
+    }
+}
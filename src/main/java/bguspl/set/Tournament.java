@@ -0,0 +1,194 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Scoreboard;
+import bguspl.set.ex.Table;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Plays many independent games, without a user interface, on a fixed number of threads (one per core by default).
+ * Every game has its own environment, table, dealer and players; only the configuration (see Config::forTournament)
+ * and the util object, which are read-only, are shared. All the players are computer players. The result of every game is streamed to a CSV
+ * file as soon as the game ends and added to a TournamentStats aggregate, which is written as JSON at the end.
+ */
+public class Tournament {
+
+    private final Logger logger;
+    private final Config config;
+    private final Util util;
+    private final int games;
+    private final int parallelism;
+    private final TournamentStats stats;
+
+    /**
+     * The lifetime statistics of the players, shared by all the games (null if they are not kept).
+     */
+    private PlayerStatsStore playerStats;
+
+    /**
+     * Make the subscribers of the event stream of every game, from the number of the game.
+     */
+    private final List<IntFunction<? extends Flow.Subscriber<? super GameEvent>>> subscribers = new ArrayList<>();
+
+    /**
+     * The class constructor.
+     *
+     * @param logger      - the logger shared by all the games.
+     * @param config      - the configuration of every game.
+     * @param util        - the util object shared by all the games.
+     * @param games       - the number of games to play.
+     * @param parallelism - the number of games to play at the same time.
+     */
+    public Tournament(Logger logger, Config config, Util util, int games, int parallelism) {
+        this.logger = logger;
+        this.config = config;
+        this.util = util;
+        this.games = games;
+        this.parallelism = Math.max(1, parallelism);
+        this.stats = new TournamentStats(config.playerNames);
+    }
+
+    /**
+     * Adds the results of every game to the lifetime statistics of the players. Must be called before run.
+     *
+     * @param playerStats - the statistics store.
+     */
+    public void recordStatsTo(PlayerStatsStore playerStats) {
+        this.playerStats = playerStats;
+    }
+
+    /**
+     * Subscribes to the event stream of every game (see GameEventStream): a new subscriber is made for every game
+     * and subscribed before the game starts, and completes when the game ends. Must be called before run.
+     *
+     * @param subscriber - makes the subscriber of a game from the number of the game.
+     */
+    public void subscribe(IntFunction<? extends Flow.Subscriber<? super GameEvent>> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Plays all the games and writes the results.
+     *
+     * @param output - the path of the output files, without an extension (".csv" and ".json" are added).
+     * @return - the aggregated results.
+     * @throws IOException          - if the results cannot be written.
+     * @throws InterruptedException - if interrupted while waiting for the games to end.
+     */
+    public TournamentStats run(String output) throws IOException, InterruptedException {
+        Path csv = Paths.get(output + ".csv");
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "game-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (Writer writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            writer.write("game,millis,dead_millis,reshuffles,sets,sets_per_second,winners,"
+                    + Arrays.stream(config.playerNames).map(name -> "score_" + name.replace(',', ' ')).collect(Collectors.joining(","))
+                    + "\n");
+            for (int game = 0; game < games; game++) {
+                int id = game;
+                executor.execute(() -> {
+                    try {
+                        Result result = play(id);
+                        synchronized (writer) {
+                            writer.write(result.row(id));
+                        }
+                        result.addTo(stats); // only once its row is written, so no game counts as played and failed
+                    } catch (IOException | RuntimeException e) {
+                        stats.addFailed();
+                        logger.severe("tournament game " + id + " failed: " + e);
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        Files.write(Paths.get(output + ".json"), stats.toJson().getBytes(StandardCharsets.UTF_8));
+        return stats;
+    }
+
+    /**
+     * Plays a single game on the calling thread.
+     *
+     * @param game - the number of the game.
+     * @return - the result of the game.
+     */
+    private Result play(int game) {
+        Env env = new Env(logger, config, new HeadlessUserInterface(), util);
+        Player[] players = new Player[config.players];
+        Table table = new Table(env);
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+        if (playerStats != null)
+            dealer.recordStatsTo(playerStats);
+        for (IntFunction<? extends Flow.Subscriber<? super GameEvent>> subscriber : subscribers)
+            env.events.subscribe(subscriber.apply(game));
+
+        long start = System.nanoTime();
+        dealer.run();
+        long lengthNanos = System.nanoTime() - start;
+        env.events.close();
+
+        return new Result(dealer.scoreboard().snapshot(), lengthNanos, dealer.deadTime().totalNanos(),
+                dealer.reshuffles());
+    }
+
+    /**
+     * The result of a single game.
+     */
+    private static class Result {
+        final int[] scores;
+        final int[] winners;
+        final long lengthNanos;
+        final long deadNanos;
+        final int reshuffles;
+
+        Result(Scoreboard.Snapshot snapshot, long lengthNanos, long deadNanos, int reshuffles) {
+            this.scores = snapshot.scores();
+            this.winners = snapshot.winners();
+            this.lengthNanos = lengthNanos;
+            this.deadNanos = deadNanos;
+            this.reshuffles = reshuffles;
+        }
+
+        /**
+         * @return - the CSV row of the game.
+         */
+        String row(int game) {
+            int sets = Arrays.stream(scores).sum();
+            return String.format(Locale.ROOT, "%d,%.1f,%.1f,%d,%d,%.3f,%s,%s%n", game, lengthNanos / 1e6,
+                    deadNanos / 1e6, reshuffles, sets,
+                    lengthNanos == 0 ? 0 : sets * 1e9 / lengthNanos,
+                    Arrays.stream(winners).mapToObj(Integer::toString).collect(Collectors.joining(" ")),
+                    Arrays.stream(scores).mapToObj(Integer::toString).collect(Collectors.joining(",")));
+        }
+
+        void addTo(TournamentStats stats) {
+            stats.add(scores, winners, lengthNanos, deadNanos, reshuffles);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package bguspl.set;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The aggregated results of the games of a tournament. Games running in parallel add their results without locking,
+ * and the aggregates may be read at any time.
+ */
+public class TournamentStats {
+
+    private final String[] playerNames;
+    private final LongAdder games = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * Per player: the games won alone, the games won in a tie, the total score and the number of games ending with
+     * every score.
+     */
+    private final LongAdder[] wins;
+    private final LongAdder[] ties;
+    private final LongAdder[] scoreSums;
+    private final Map<Integer, LongAdder>[] scoreCounts;
+
+    private final LatencyHistogram gameLength = new LatencyHistogram();
+    private final LatencyHistogram deadTime = new LatencyHistogram();
+    private final LongAdder reshuffles = new LongAdder();
+    private final LongAdder setsFound = new LongAdder();
+    private final DoubleAdder setsPerSecond = new DoubleAdder();
+
+    /**
+     * The class constructor.
+     *
+     * @param playerNames - the names of the players.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TournamentStats(String[] playerNames) {
+        this.playerNames = playerNames.clone();
+        int players = playerNames.length;
+        wins = new LongAdder[players];
+        ties = new LongAdder[players];
+        scoreSums = new LongAdder[players];
+        scoreCounts = new Map[players];
+        for (int i = 0; i < players; i++) {
+            wins[i] = new LongAdder();
+            ties[i] = new LongAdder();
+            scoreSums[i] = new LongAdder();
+            scoreCounts[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Adds the result of a single game.
+     *
+     * @param scores      - the final score of every player.
+     * @param winners     - the players with the highest score.
+     * @param lengthNanos - the length of the game in nanoseconds.
+     * @param deadNanos   - the time the table had no set during the game, in nanoseconds.
+     * @param reshuffles  - the number of times the whole table was dealt again during the game.
+     */
+    public void add(int[] scores, int[] winners, long lengthNanos, long deadNanos, int reshuffles) {
+        int sets = 0;
+        for (int player = 0; player < scores.length; player++) {
+            sets += scores[player];
+            scoreSums[player].add(scores[player]);
+            scoreCounts[player].computeIfAbsent(scores[player], score -> new LongAdder()).increment();
+        }
+        for (int winner : winners)
+            (winners.length == 1 ? wins : ties)[winner].increment();
+        gameLength.record(lengthNanos);
+        deadTime.record(deadNanos);
+        this.reshuffles.add(reshuffles);
+        setsFound.add(sets);
+        if (lengthNanos > 0)
+            setsPerSecond.add(sets * 1e9 / lengthNanos);
+        games.increment();
+    }
+
+    /**
+     * Counts a game that did not finish normally.
+     */
+    public void addFailed() {
+        failed.increment();
+    }
+
+    public long games() {
+        return games.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    /**
+     * @return - the mean number of sets found per second of a game.
+     */
+    public double meanSetsPerSecond() {
+        long games = games();
+        return games == 0 ? 0 : setsPerSecond.sum() / games;
+    }
+
+    /**
+     * @return - the mean number of reshuffles per game.
+     */
+    public double meanReshuffles() {
+        long games = games();
+        return games == 0 ? 0 : (double) reshuffles.sum() / games;
+    }
+
+    /**
+     * @return - the aggregated results as a JSON object.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"games\": ").append(games()).append(",\n");
+        json.append("  \"failed\": ").append(failed()).append(",\n");
+        json.append("  \"setsFound\": ").append(setsFound.sum()).append(",\n");
+        json.append(String.format(Locale.ROOT, "  \"meanSetsPerSecond\": %.3f,%n", meanSetsPerSecond()));
+        json.append(String.format(Locale.ROOT, "  \"meanReshuffles\": %.3f,%n", meanReshuffles()));
+        json.append(String.format(Locale.ROOT, "  \"gameMillis\": {\"mean\": %.1f, \"p50\": %.1f, \"p90\": %.1f, \"p99\": %.1f, \"max\": %.1f},%n",
+                gameLength.mean() / 1e6, gameLength.percentile(0.5) / 1e6, gameLength.percentile(0.9) / 1e6,
+                gameLength.percentile(0.99) / 1e6, gameLength.max() / 1e6));
+        json.append(String.format(Locale.ROOT, "  \"deadMillis\": {\"mean\": %.1f, \"p50\": %.1f, \"p90\": %.1f, \"p99\": %.1f, \"max\": %.1f},%n",
+                deadTime.mean() / 1e6, deadTime.percentile(0.5) / 1e6, deadTime.percentile(0.9) / 1e6,
+                deadTime.percentile(0.99) / 1e6, deadTime.max() / 1e6));
+        json.append("  \"players\": [");
+        for (int player = 0; player < playerNames.length; player++) {
+            json.append(player == 0 ? "\n" : ",\n");
+            json.append("    {\"name\": \"").append(playerNames[player].replace("\\", "\\\\").replace("\"", "\\\""))
+                    .append("\", \"wins\": ").append(wins[player].sum())
+                    .append(", \"ties\": ").append(ties[player].sum())
+                    .append(String.format(Locale.ROOT, ", \"meanScore\": %.3f", games() == 0 ? 0 : (double) scoreSums[player].sum() / games()))
+                    .append(", \"scores\": {");
+            String separator = "";
+            for (Map.Entry<Integer, LongAdder> entry : new TreeMap<>(scoreCounts[player]).entrySet()) {
+                json.append(separator).append('"').append(entry.getKey()).append("\": ").append(entry.getValue().sum());
+                separator = ", ";
+            }
+            json.append("}}");
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder(String.format(
+                "%d games (%d failed), game length %.1fms mean (p99 %.1fms), dead time %.1fms mean, %.2f reshuffles mean, %.2f sets per second%n",
+                games(), failed(), gameLength.mean() / 1e6, gameLength.percentile(0.99) / 1e6, deadTime.mean() / 1e6,
+                meanReshuffles(), meanSetsPerSecond()));
+        for (int player = 0; player < playerNames.length; player++)
+            summary.append(String.format("%-12s %6d wins %6d ties %8.2f mean score%n", playerNames[player],
+                    wins[player].sum(), ties[player].sum(),
+                    games() == 0 ? 0 : (double) scoreSums[player].sum() / games()));
+        return summary.toString();
+    }
+}
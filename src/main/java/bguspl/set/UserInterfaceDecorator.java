@@ -15,8 +15,6 @@ public class UserInterfaceDecorator implements UserInterface {
         this.ui = ui;
         this.logger = logger;
         this.util = util;
-
-        if (ui == null) System.out.println("running without a user interface. Check logs.");
     }
 
     @Override
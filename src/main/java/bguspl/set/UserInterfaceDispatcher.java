@@ -0,0 +1,258 @@
+package bguspl.set;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * A UserInterface that forwards every call to any number of sinks (e.g. the Swing window and the log) without
+ * running them on the calling game thread. Every sink has its own bounded queue and consumer thread, so a slow sink
+ * only delays itself.
+ */
+public class UserInterfaceDispatcher implements UserInterface {
+
+    /**
+     * What a sink does with a countdown, elapsed time or freeze update when its queue is full.
+     * Card, token, score and winner updates are never dropped: the caller always waits for room in the queue.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait for room in the queue, like every other update.
+         */
+        BLOCK,
+        /**
+         * Keep only the latest pending update of each kind (one countdown, one freeze per player) and never wait.
+         */
+        COALESCE_LATEST
+    }
+
+    /**
+     * The coalescing key of countdown and elapsed time updates (freeze updates use the player id as their key).
+     */
+    private static final Object COUNTDOWN = new Object();
+
+    /**
+     * The maximum time a coalesced update that did not fit in the queue waits for an idle consumer to deliver it.
+     */
+    private static final long OVERFLOW_DRAIN_MILLIS = 50;
+
+    /**
+     * Stops a sink's consumer thread after disposing of the sink's user interface.
+     */
+    private static final Consumer<UserInterface> STOP = UserInterface::dispose;
+
+    private final Logger logger;
+    private final List<Sink> sinks = new CopyOnWriteArrayList<>();
+
+    public UserInterfaceDispatcher(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Adds a sink and starts its consumer thread.
+     *
+     * @param name     - the name of the sink (used for its thread name).
+     * @param ui       - the user interface to forward the calls to.
+     * @param capacity - the maximum number of pending updates.
+     * @param policy   - what to do with transient updates when the queue is full.
+     * @return - this dispatcher.
+     */
+    public UserInterfaceDispatcher addSink(String name, UserInterface ui, int capacity, OverflowPolicy policy) {
+        Sink sink = new Sink(name, ui, capacity, policy);
+        sinks.add(sink);
+        sink.thread.startWithLog();
+        return this;
+    }
+
+    private void dispatch(Consumer<UserInterface> update) {
+        for (Sink sink : sinks)
+            sink.put(update);
+    }
+
+    private void dispatch(Object key, Consumer<UserInterface> update) {
+        for (Sink sink : sinks)
+            sink.offer(key, update);
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        dispatch(ui -> ui.placeCard(card, slot));
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        dispatch(ui -> ui.removeCard(slot));
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        dispatch(ui -> ui.placeToken(player, slot));
+    }
+
+    @Override
+    public void removeTokens() {
+        dispatch(UserInterface::removeTokens);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        dispatch(ui -> ui.removeTokens(slot));
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        dispatch(ui -> ui.removeToken(player, slot));
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        dispatch(COUNTDOWN, ui -> ui.setCountdown(millies, warn));
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        dispatch(COUNTDOWN, ui -> ui.setElapsed(millies));
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        dispatch(player, ui -> ui.setFreeze(player, millies));
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        dispatch(ui -> ui.setScore(player, score));
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        dispatch(ui -> ui.announceWinner(players));
+    }
+
+    /**
+     * Delivers all the pending updates, disposes of every sink and stops the consumer threads.
+     */
+    @Override
+    public void dispose() {
+        for (Sink sink : sinks)
+            sink.put(STOP);
+        for (Sink sink : sinks) {
+            try {
+                sink.thread.joinWithLog();
+            } catch (InterruptedException ignored) {
+            }
+            if (sink.dropped.sum() > 0)
+                logger.info("ui sink " + sink.name + " coalesced " + sink.dropped.sum() + " transient updates.");
+        }
+    }
+
+    /**
+     * A single sink: a bounded queue of pending updates and the thread that delivers them.
+     */
+    private class Sink implements Runnable {
+
+        final String name;
+        final UserInterface ui;
+        final OverflowPolicy policy;
+        final BlockingQueue<Consumer<UserInterface>> queue;
+
+        /**
+         * The latest pending update of every coalescing key (COALESCE_LATEST only). The queue holds a single
+         * placeholder per key that delivers whatever is in here when its turn comes; a key whose placeholder did not
+         * fit in the queue stays in here until the consumer drains it (see overflowed).
+         */
+        final Map<Object, Consumer<UserInterface>> latest = new ConcurrentHashMap<>();
+
+        /**
+         * True iff some pending update in latest has no placeholder in the queue.
+         */
+        final AtomicBoolean overflowed = new AtomicBoolean();
+
+        /**
+         * The number of updates replaced by a later update of the same key before they were delivered.
+         */
+        final LongAdder dropped = new LongAdder();
+        final ThreadLogger thread;
+
+        Sink(String name, UserInterface ui, int capacity, OverflowPolicy policy) {
+            this.name = name;
+            this.ui = ui;
+            this.policy = policy;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new ThreadLogger(this, "ui-" + name, logger);
+            thread.setDaemon(true);
+        }
+
+        void put(Consumer<UserInterface> update) {
+            try {
+                queue.put(update);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void offer(Object key, Consumer<UserInterface> update) {
+            if (policy == OverflowPolicy.BLOCK) {
+                put(update);
+                return;
+            }
+            if (latest.put(key, update) != null) {
+                dropped.increment(); // coalesced into the update that is already pending
+                return;
+            }
+            if (!queue.offer(ui -> deliverLatest(key)))
+                overflowed.set(true); // the consumer delivers it when it drains latest
+        }
+
+        private void deliverLatest(Object key) {
+            Consumer<UserInterface> update = latest.remove(key);
+            if (update != null) deliver(update);
+        }
+
+        /**
+         * Delivers the pending updates of all the keys, if some of them have no placeholder in the queue.
+         */
+        private void drainOverflowed() {
+            if (overflowed.getAndSet(false))
+                for (Object key : latest.keySet())
+                    deliverLatest(key);
+        }
+
+        private void deliver(Consumer<UserInterface> update) {
+            try {
+                update.accept(ui);
+            } catch (RuntimeException e) {
+                logger.severe("ui sink " + name + " failed: " + e);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Consumer<UserInterface> update;
+                try {
+                    // the timeout bounds the delay of an update that overflowed after the queue was emptied
+                    update = queue.poll(OVERFLOW_DRAIN_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (update == STOP) {
+                    drainOverflowed();
+                    deliver(update);
+                    return;
+                }
+                if (update != null)
+                    deliver(update);
+                drainOverflowed();
+            }
+        }
+    }
+}
@@ -4,10 +4,9 @@ import bguspl.set.ex.Player;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.FileNotFoundException;
-import java.net.URL;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -29,10 +28,20 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
     }
 
     public UserInterfaceSwing(Logger logger, Config config, Player[] players) {
+        this(logger, config, players, CompletableFuture.completedFuture(CardImages.loadDeck(config)));
+    }
+
+    /**
+     * Creates the user interface while the card images may still be loading. Until they are loaded, the cards are
+     * drawn as empty cards.
+     *
+     * @param cardImages - the image of every card, indexed by card id (possibly not loaded yet).
+     */
+    public UserInterfaceSwing(Logger logger, Config config, Player[] players, CompletableFuture<Image[]> cardImages) {
 
         this.config = config;
         timerPanel = new TimerPanel();
-        gamePanel = new GamePanel();
+        gamePanel = new GamePanel(config, cardImages);
         playersPanel = new PlayersPanel();
         winnerPanel = new WinnerPanel();
 
@@ -46,7 +55,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
         add(timerPanel, gbc);
         gbc.gridy++;
-        add(gamePanel, gbc);
+        add(tableView(), gbc);
         gbc.gridy++;
         add(playersPanel, gbc);
         gbc.gridy++;
@@ -69,184 +78,83 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         EventQueue.invokeLater(() -> setVisible(true));
     }
 
+    /**
+     * @return - the game panel in a scroll pane, which only shows scroll bars if the table is larger than
+     * MaxViewportWidth x MaxViewportHeight.
+     */
+    private JScrollPane tableView() {
+        JScrollPane scrollPane = new JScrollPane(gamePanel);
+        scrollPane.setBorder(BorderFactory.createEmptyBorder());
+        scrollPane.setWheelScrollingEnabled(true);
+        // keep the keyboard focus on the frame, where the input manager listens
+        scrollPane.setFocusable(false);
+        scrollPane.getViewport().setFocusable(false);
+        scrollPane.getHorizontalScrollBar().setFocusable(false);
+        scrollPane.getVerticalScrollBar().setFocusable(false);
+        return scrollPane;
+    }
+
     private class TimerPanel extends JPanel {
 
-        private final JLabel timerField;
+        /**
+         * The labels of the timer field.
+         */
+        private static final int GET_READY = 0, PLAY = 1, REMAINING = 2, ELAPSED = 3;
 
-        private String generateTime(long millies, boolean warn) {
-            if (warn)
-                return format("Remaining Time: %.2f", (double) millies / 1000.0f);
-            else
-                return format("Remaining Time: %d", millies / 1000L);
-        }
+        private final HudField timerField;
 
         private TimerPanel() {
-            timerField = new JLabel(config.turnTimeoutMillis < 0 ? "PLAY" : "GET READY...");
-
-            // set fonts and color
-            timerField.setFont(new Font("Serif", Font.BOLD, config.fontSize));
-            timerField.setForeground(Color.BLACK);
+            timerField = new HudField(new Font("Serif", Font.BOLD, config.fontSize), 12,
+                    "GET READY...", "PLAY", "Remaining Time: ", "Elapsed time: ");
+            timerField.setLabel(config.turnTimeoutMillis < 0 ? PLAY : GET_READY, false);
 
             add(timerField);
         }
 
         private void setCountdown(long millies, boolean warn) {
-            timerField.setText(generateTime(millies, warn));
-            timerField.setForeground(warn ? Color.RED : Color.BLACK);
+            if (warn)
+                timerField.setHundredths(REMAINING, true, (millies + 5) / 10);
+            else
+                timerField.setNumber(REMAINING, false, millies / 1000L);
         }
 
         private void setElapsed(long millies) {
-            timerField.setText("Elapsed time: " + millies / 1000);
-        }
-    }
-
-    private class GamePanel extends JLayeredPane {
-
-        private final Image emptyCard;
-        private final Image[] deck;
-        private final Image[][] grid;
-        private final boolean[][][] playerTokens;
-        private final JLabel[][] tokenText;
-
-        private Image loadImageResource(String filename) {
-            URL imageResource = getClass().getClassLoader().getResource(filename);
-            if (imageResource == null)
-                throw new RuntimeException(new FileNotFoundException(filename));
-            return new ImageIcon(imageResource).getImage();
-        }
-
-        private GamePanel() {
-
-            setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
-
-            // init deck and load all pictures from png files
-            assert config.featureSize < 10; // otherwise there will be naming conflicts
-
-            // load the image resources
-            deck = new Image[config.deckSize];
-            for (int i = 0; i < config.deckSize; ++i)
-                deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
-            emptyCard = loadImageResource("cards/empty_card.png");
-
-            grid = new Image[config.rows][config.columns];
-            tokenText = new JLabel[config.rows][config.columns];
-            playerTokens = new boolean[config.players][config.rows][config.columns];
-            for (int row = 0; row < config.rows; row++) {
-                for (int column = 0; column < config.columns; column++) {
-                    // init the cards on the table grid as empty cards
-                    grid[row][column] = emptyCard;
-
-                    // init the JLabel selection overlay
-                    tokenText[row][column] = new JLabel("");
-                    tokenText[row][column].setVerticalAlignment(JLabel.TOP);
-                    tokenText[row][column].setHorizontalAlignment(JLabel.CENTER);
-                    tokenText[row][column].setOpaque(false);
-                    tokenText[row][column].setBorder(BorderFactory.createLineBorder(Color.black));
-                    tokenText[row][column].setBounds((column * config.cellWidth), (row * config.cellHeight), config.cellWidth, config.cellHeight);
-                    add(tokenText[row][column]);
-                }
-            }
-        }
-
-        private void placeCard(int slot, int card) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            grid[row][column] = deck[card];
-            validate();
-            repaint();
-        }
-
-        private void removeCard(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            grid[row][column] = emptyCard;
-            validate();
-            repaint();
-        }
-
-        private void placeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = true;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
-        }
-
-        private void removeTokens() {
-            for (int i = 0; i < config.tableSize; i++)
-                removeTokens(i);
-        }
-
-        private void removeTokens(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            for (int player = 0; player < playerTokens.length; player++) {
-                playerTokens[player][row][column] = false;
-                tokenText[row][column].setText(generatePlayersTokenText(row, column));
-            }
-        }
-
-        private void removeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = false;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
-        }
-
-        private String generatePlayersTokenText(int row, int column) {
-            String text = "";
-            for (int player = 0; player < config.players; player++) {
-                if (playerTokens[player][row][column])
-                    text = text.concat(config.playerNames[player] + ", ");
-            }
-            if (text.length() < 2)
-                return "";
-            return text.substring(0, text.length() - 2);
-        }
-
-        @Override
-        public void paintComponent(Graphics g) {
-            // draw card images
-            for (int row = 0; row < config.rows; row++)
-                for (int column = 0; column < config.columns; column++)
-                    g.drawImage(grid[row][column], (column * config.cellWidth), (row * config.cellHeight), this);
+            timerField.setNumber(ELAPSED, false, millies / 1000);
         }
     }
 
     private class PlayersPanel extends JPanel {
 
-        private final JLabel[][] playersTable;
+        private final HudField[] names;
+        private final HudField[] scores;
 
         private PlayersPanel() {
             this.setLayout(new GridLayout(2, config.players));
             this.setPreferredSize(new Dimension(config.players * config.playerCellWidth, config.rows * config.playerCellHeight));
-            this.playersTable = new JLabel[2][config.players];
+            this.names = new HudField[config.players];
+            this.scores = new HudField[config.players];
             for (int i = 0; i < config.players; i++) {
-                this.playersTable[0][i] = new JLabel(config.playerNames[i]);
-                this.playersTable[0][i].setFont(new Font("Serif", Font.BOLD, config.fontSize));
-                this.playersTable[0][i].setHorizontalAlignment(JLabel.CENTER);
-                this.add(playersTable[0][i]);
+                this.names[i] = new HudField(new Font("Serif", Font.BOLD, config.fontSize), 8, config.playerNames[i]);
+                this.names[i].setLabel(0, false);
+                this.add(names[i]);
             }
 
             for (int i = 0; i < config.players; i++) {
-                this.playersTable[1][i] = new JLabel("0");
-                this.playersTable[1][i].setFont(new Font("Serif", Font.PLAIN, config.fontSize));
-                this.playersTable[1][i].setHorizontalAlignment(JLabel.CENTER);
-                this.add(playersTable[1][i]);
+                this.scores[i] = new HudField(new Font("Serif", Font.PLAIN, config.fontSize), 8, "");
+                this.scores[i].setNumber(0, false, 0);
+                this.add(scores[i]);
             }
         }
 
         private void setFreeze(int player, long millies) {
-            if (millies > 0) {
-                this.playersTable[0][player].setText(config.playerNames[player] + " (" + millies / 1000 + ")");
-                this.playersTable[0][player].setForeground(Color.RED);
-            } else {
-                this.playersTable[0][player].setText(config.playerNames[player]);
-                this.playersTable[0][player].setForeground(Color.BLACK);
-            }
+            if (millies > 0)
+                names[player].setParenthesized(0, true, millies / 1000);
+            else
+                names[player].setLabel(0, false);
         }
 
         private void setScore(int player, int score) {
-            playersTable[1][player].setText(Integer.toString(score));
+            scores[player].setNumber(0, false, score);
         }
     }
 
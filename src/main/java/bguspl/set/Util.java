@@ -31,6 +31,15 @@ public interface Util {
      */
     boolean testSet(int[] cards);
 
+    /**
+     * Returns the card that completes two cards to a legal set of 3 cards.
+     *
+     * @param first  - the first card.
+     * @param second - the second card.
+     * @return - the card that completes the set, or -1 if sets are not of 3 cards or the lookup is not available.
+     */
+    int completeSet(int first, int second);
+
     /**
      * Finds and returns up to count sets in the given collection of cards.
      *
@@ -40,6 +49,15 @@ public interface Util {
      */
     List<int[]> findSets(List<Integer> deck, int count);
 
+    /**
+     * Finds and returns up to count sets in the given array of cards (same as the list version, without boxing).
+     *
+     * @param cards - an array of card ids.
+     * @param count - the maximum number of sets to find.
+     * @return - a list of up to count integer arrays, each one contains the card ids of a legal set.
+     */
+    List<int[]> findSets(int[] cards, int count);
+
     /**
      * Spin a random number of times (for debugging/testing).
      */
@@ -0,0 +1,67 @@
+package bguspl.set;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * A micro benchmark of the different ways UtilImpl can test a set (array features, packed features and the set
+ * completion table).
+ * Usage: java -cp Set_Card_Game.jar bguspl.set.UtilBenchmark [FeatureCount] [FeatureSize]
+ */
+public class UtilBenchmark {
+
+    private static final int CANDIDATES = 1 << 16;
+    private static final int ROUNDS = 200;
+    private static final int WARMUP_ROUNDS = 50;
+
+    private interface SetTest {
+        boolean test(int[] cards);
+    }
+
+    public static void main(String[] args) {
+        Properties properties = new Properties();
+        properties.setProperty("FeatureCount", args.length > 0 ? args[0] : "4");
+        properties.setProperty("FeatureSize", args.length > 1 ? args[1] : "3");
+        properties.setProperty("PackedFeatures", "True");
+        properties.setProperty("HumanPlayers", "0");
+        Logger logger = Logger.getLogger("UtilBenchmark");
+        Config config = new Config(logger, properties);
+        UtilImpl util = new UtilImpl(config, logger);
+
+        // random candidates, about half of them legal sets
+        Random random = new Random(0);
+        int[][] candidates = new int[CANDIDATES][];
+        for (int i = 0; i < CANDIDATES; i++) {
+            candidates[i] = random.ints(config.featureSize, 0, config.deckSize).toArray();
+            if (random.nextBoolean() && config.featureSize == 3 && util.completeSet(0, 0) >= 0)
+                candidates[i][2] = util.completeSet(candidates[i][0], candidates[i][1]);
+        }
+
+        System.out.printf("%d cards, %d features of size %d, %d candidates%n",
+                config.deckSize, config.featureCount, config.featureSize, CANDIDATES);
+        run("array features", candidates, util::testSetArrays);
+        run("packed features", candidates, util::testSetPacked);
+        if (util.completeSet(0, 0) >= 0)
+            run("completion table", candidates, cards -> util.completeSet(cards[0], cards[1]) == cards[2]);
+    }
+
+    private static void run(String name, int[][] candidates, SetTest setTest) {
+        long sets = 0;
+        for (int round = 0; round < WARMUP_ROUNDS; round++)
+            sets += count(candidates, setTest);
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++)
+            sets += count(candidates, setTest);
+        double nanosPerTest = (double) (System.nanoTime() - start) / ((long) ROUNDS * candidates.length);
+        System.out.printf("%-18s %8.2f ns/test (%d sets)%n", name, nanosPerTest, sets);
+    }
+
+    private static int count(int[][] candidates, SetTest setTest) {
+        int sets = 0;
+        for (int[] cards : candidates)
+            if (setTest.test(cards))
+                sets++;
+        return sets;
+    }
+}
@@ -4,6 +4,8 @@ import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 import java.util.stream.IntStream;
 
 /**
@@ -11,10 +13,105 @@ import java.util.stream.IntStream;
  */
 public class UtilImpl implements Util {
 
+    /**
+     * The largest set completion table (in bytes) that will be built.
+     */
+    static final long COMPLETION_TABLE_MAX_BYTES = 4L << 20;
+
     private final Config config;
 
+    /**
+     * The set completion table: for sets of 3 cards, the entry of (first * deckSize + second) is the only card that
+     * completes first and second to a legal set. Entries are unsigned (byte for up to 256 cards, short for up to
+     * 65536 cards). Both are null if there is no table (e.g. sets of more than 3 cards or a deck that is too large).
+     */
+    private final byte[] completion8;
+    private final short[] completion16;
+
+    /**
+     * The packed encoding of every card: feature i is one-hot encoded in bits [i * featureSize, (i + 1) * featureSize)
+     * of a single long. Null if the packed encoding is off or the features do not fit in 64 bits.
+     */
+    private final long[] packed;
+
+    /**
+     * Masks for the packed encoding: all the feature bits, and the lowest bit of every feature.
+     */
+    private final long packedAll;
+    private final long packedLow;
+
     public UtilImpl(Config config) {
+        this(config, null);
+    }
+
+    /**
+     * The class constructor.
+     *
+     * @param config - the game configuration.
+     * @param logger - the logger to report the set completion table to (may be null).
+     */
+    public UtilImpl(Config config, Logger logger) {
         this.config = config;
+
+        int bits = config.featureCount * config.featureSize;
+        if (config.packedFeatures && bits <= 64) {
+            packed = new long[config.deckSize];
+            int[] features = new int[config.featureCount];
+            for (int card = 0; card < config.deckSize; card++) {
+                cardToFeatures(card, features);
+                for (int i = 0; i < config.featureCount; i++)
+                    packed[card] |= 1L << (i * config.featureSize + features[i]);
+            }
+            long low = 0;
+            for (int i = 0; i < config.featureCount; i++)
+                low |= 1L << (i * config.featureSize);
+            packedAll = bits == 64 ? -1L : (1L << bits) - 1;
+            packedLow = low;
+        } else {
+            if (config.packedFeatures && logger != null)
+                logger.severe("warning: packed features need " + bits + " bits, using the array encoding instead.");
+            packed = null;
+            packedAll = 0;
+            packedLow = 0;
+        }
+
+        long start = System.nanoTime();
+        int n = config.deckSize;
+        long bytes = (long) n * n * (n <= 256 ? 1 : 2);
+        if (config.featureSize != 3 || n > 65536 || bytes > COMPLETION_TABLE_MAX_BYTES) {
+            completion8 = null;
+            completion16 = null;
+            if (logger != null)
+                logger.info("set completion table skipped (" + n + " cards, feature size " + config.featureSize + ", "
+                        + bytes + " bytes needed, budget " + COMPLETION_TABLE_MAX_BYTES + " bytes).");
+            return;
+        }
+
+        completion8 = n <= 256 ? new byte[n * n] : null;
+        completion16 = n <= 256 ? null : new short[n * n];
+        int[] first = new int[config.featureCount];
+        int[] second = new int[config.featureCount];
+        for (int a = 0; a < n; a++) {
+            cardToFeatures(a, first);
+            for (int b = 0; b < n; b++) {
+                cardToFeatures(b, second);
+                int third = 0;
+                for (int i = 0; i < config.featureCount; i++)
+                    third = third * 3 + (6 - first[i] - second[i]) % 3; // all the same or all different
+                if (completion8 != null) completion8[a * n + b] = (byte) third;
+                else completion16[a * n + b] = (short) third;
+            }
+        }
+        if (logger != null)
+            logger.info("set completion table built for " + n + " cards: " + bytes + " bytes in "
+                    + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) + " us.");
+    }
+
+    /**
+     * @return - true iff the set completion table was built.
+     */
+    boolean hasCompletionTable() {
+        return completion8 != null || completion16 != null;
     }
 
     private void cardToFeatures(int card, int[] features) {
@@ -38,8 +135,52 @@ public class UtilImpl implements Util {
         return features;
     }
 
+    @Override
+    public int completeSet(int first, int second) {
+        if (completion8 != null) return completion8[first * config.deckSize + second] & 0xFF;
+        if (completion16 != null) return completion16[first * config.deckSize + second] & 0xFFFF;
+        return -1;
+    }
+
     @Override
     public boolean testSet(int[] cards) {
+        if (packed != null && cards.length == config.featureSize)
+            return testSetPacked(cards);
+        if (cards.length == 3 && hasCompletionTable())
+            return completeSet(cards[0], cards[1]) == cards[2];
+        return testSetArrays(cards);
+    }
+
+    /**
+     * Tests a set using the packed encoding. For every feature, the cards are either all the same (the OR and the AND
+     * of their one-hot bits are equal) or all different (the OR has all the bits of the feature, since there are
+     * exactly featureSize cards).
+     */
+    boolean testSetPacked(int[] cards) {
+        long or = 0, and = -1L;
+        for (int card : cards) {
+            or |= packed[card];
+            and &= packed[card];
+        }
+        long notSame = or ^ and;
+        long notAllDifferent = ~or & packedAll;
+        return (anyBitPerFeature(notSame) & anyBitPerFeature(notAllDifferent)) == 0;
+    }
+
+    /**
+     * @return - a mask with the lowest bit of every feature set iff any bit of that feature is set in x.
+     */
+    private long anyBitPerFeature(long x) {
+        long any = x;
+        for (int shift = 1; shift < config.featureSize; shift++)
+            any |= x >>> shift;
+        return any & packedLow;
+    }
+
+    /**
+     * Tests a set by comparing the features of the cards one by one.
+     */
+    boolean testSetArrays(int[] cards) {
         int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
         for (int i = 0; i < config.featureCount; ++i) {
             boolean sameSame = true, butDifferent = true;
@@ -66,16 +207,37 @@ public class UtilImpl implements Util {
 
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
+        return findSets(deck.stream().mapToInt(Integer::intValue).toArray(), count);
+    }
+
+    @Override
+    public List<int[]> findSets(int[] deck, int count) {
+        GameEvents.FindSetsCall event = new GameEvents.FindSetsCall();
+        event.begin();
+        List<int[]> sets = hasCompletionTable() ? findSetsOfThree(deck, count) : findSetsOfCombinations(deck, count);
+        if (event.shouldCommit()) {
+            event.deckSize = deck.length;
+            event.count = count;
+            event.found = sets.size();
+            event.commit();
+        }
+        return sets;
+    }
+
+    /**
+     * Finds sets by testing every combination of FeatureSize cards, in lexicographic order.
+     */
+    private List<int[]> findSetsOfCombinations(int[] deck, int count) {
         LinkedList<int[]> sets = new LinkedList<>();
-        int n = deck.size();
+        int n = deck.length;
         int r = config.featureSize;
         int[] combination = new int[r];
 
         for (int i = 0; i < r; ++i)
             combination[i] = i;
 
-        while (combination[r - 1] < deck.size()) {
-            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
+        while (combination[r - 1] < n) {
+            int[] cards = Arrays.stream(combination).map(i -> deck[i]).sorted().toArray();
             if (testSet(cards)) {
                 sets.add(cards);
                 if (sets.size() >= count) return sets;
@@ -90,6 +252,31 @@ public class UtilImpl implements Util {
         return sets;
     }
 
+    /**
+     * Finds sets of 3 cards by scanning every pair of cards and looking up the card that completes it.
+     * The sets are returned in the same order as the combination scan of findSets would return them.
+     */
+    private List<int[]> findSetsOfThree(int[] deck, int count) {
+        LinkedList<int[]> sets = new LinkedList<>();
+        if (count <= 0) return sets;
+        int[] position = new int[config.deckSize];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < deck.length; i++)
+            position[deck[i]] = i;
+
+        for (int i = 0; i < deck.length; i++)
+            for (int j = i + 1; j < deck.length; j++) {
+                int k = position[completeSet(deck[i], deck[j])];
+                if (k > j) {
+                    int[] cards = {deck[i], deck[j], deck[k]};
+                    Arrays.sort(cards);
+                    sets.add(cards);
+                    if (sets.size() >= count) return sets;
+                }
+            }
+        return sets;
+    }
+
     public void spin() {
         if (config.randomSpinMax <= 0) return;
         long cycles = ThreadLocalRandom.current().nextLong(config.randomSpinMin, config.randomSpinMax);
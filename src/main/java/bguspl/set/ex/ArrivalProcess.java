@@ -0,0 +1,131 @@
+package bguspl.set.ex;
+
+import java.util.Random;
+
+/**
+ * The times at which a simulated player presses keys, given as the delay before each key press.
+ * An arrival process is parsed from a spec of the form "Name:rate[:burst]", where rate is the mean number of key
+ * presses per second:
+ * "Fixed:10" - exactly 10 key presses a second, evenly spaced.
+ * "Poisson:10" - 10 key presses a second on average, with exponentially distributed gaps.
+ * "Bursty:10:5" - bursts of 5 back-to-back key presses, with the bursts arriving as a Poisson process at 2 a second.
+ * An instance may keep state between key presses, so every simulated player needs its own instance.
+ */
+public abstract class ArrivalProcess {
+
+    /**
+     * The mean number of key presses per second.
+     */
+    public final double rate;
+
+    protected ArrivalProcess(double rate) {
+        if (!(rate > 0))
+            throw new IllegalArgumentException("the arrival rate must be positive: " + rate);
+        this.rate = rate;
+    }
+
+    /**
+     * @param random - the random number generator to use.
+     * @return - the number of nanoseconds until the next key press.
+     */
+    public abstract long nextDelayNanos(Random random);
+
+    /**
+     * @param random - the random number generator to use.
+     * @param rate   - the mean number of arrivals per second.
+     * @return - an exponentially distributed delay (in nanoseconds) with the given rate.
+     */
+    protected static long exponentialNanos(Random random, double rate) {
+        return (long) (-Math.log(1 - random.nextDouble()) / rate * 1e9);
+    }
+
+    /**
+     * Creates a new arrival process from its spec (see the class description).
+     *
+     * @param spec - the spec of the arrival process.
+     * @return - a new arrival process.
+     * @throws IllegalArgumentException - if the spec is not valid.
+     */
+    public static ArrivalProcess parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            double rate = Double.parseDouble(parts[1].trim());
+            switch (parts[0].trim().toLowerCase()) {
+                case "fixed":
+                    return new Fixed(rate);
+                case "poisson":
+                    return new Poisson(rate);
+                case "bursty":
+                    return new Bursty(rate, parts.length > 2 ? Integer.parseInt(parts[2].trim()) : 5);
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("invalid arrival process: " + spec);
+    }
+
+    static class Fixed extends ArrivalProcess {
+        private final long periodNanos;
+
+        Fixed(double rate) {
+            super(rate);
+            periodNanos = (long) (1e9 / rate);
+        }
+
+        @Override
+        public long nextDelayNanos(Random random) {
+            return periodNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Fixed:" + rate;
+        }
+    }
+
+    static class Poisson extends ArrivalProcess {
+        Poisson(double rate) {
+            super(rate);
+        }
+
+        @Override
+        public long nextDelayNanos(Random random) {
+            return exponentialNanos(random, rate);
+        }
+
+        @Override
+        public String toString() {
+            return "Poisson:" + rate;
+        }
+    }
+
+    static class Bursty extends ArrivalProcess {
+        private final int burst;
+
+        /**
+         * The number of key presses left in the current burst.
+         */
+        private int left;
+
+        Bursty(double rate, int burst) {
+            super(rate);
+            if (burst < 1)
+                throw new IllegalArgumentException("the burst size must be positive: " + burst);
+            this.burst = burst;
+        }
+
+        @Override
+        public long nextDelayNanos(Random random) {
+            if (left > 0) {
+                left--;
+                return 0;
+            }
+            left = burst - 1;
+            return exponentialNanos(random, rate / burst);
+        }
+
+        @Override
+        public String toString() {
+            return "Bursty:" + rate + ":" + burst;
+        }
+    }
+}
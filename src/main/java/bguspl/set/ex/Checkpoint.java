@@ -0,0 +1,219 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * An immutable snapshot of a running game: the deck, the cards on the table, the scores and the tokens of the players,
+ * and how far the current turn is. It is saved in a compact binary format: a header (magic, version, shape of the
+ * game), the data as variable length integers, and a CRC32 of everything before it. A file is always replaced by an
+ * atomic rename, so a reader sees either the previous checkpoint or the new one, never a partial one.
+ * Freeze times and pending key presses are not saved; a resumed game starts with every player unfrozen.
+ */
+public final class Checkpoint {
+
+    private static final int MAGIC = 0x53455443; // "SETC"
+    private static final int VERSION = 1;
+
+    /**
+     * The time the snapshot was taken (see System::currentTimeMillis).
+     */
+    public final long takenAt;
+
+    /**
+     * The time that passed since the countdown was last reset.
+     */
+    public final long turnElapsedMillis;
+
+    /**
+     * The cards in the deck, in order.
+     */
+    final int[] deck;
+
+    /**
+     * The card in every slot (Table.EMPTY for an empty slot).
+     */
+    final int[] slotToCard;
+
+    /**
+     * The score of every player.
+     */
+    final int[] scores;
+
+    /**
+     * The slots of the tokens of every player (-1 for a token not on the table).
+     */
+    final int[][] tokens;
+
+    Checkpoint(long takenAt, long turnElapsedMillis, int[] deck, int[] slotToCard, int[] scores, int[][] tokens) {
+        this.takenAt = takenAt;
+        this.turnElapsedMillis = turnElapsedMillis;
+        this.deck = deck;
+        this.slotToCard = slotToCard;
+        this.scores = scores;
+        this.tokens = tokens;
+    }
+
+    /**
+     * Checks that the checkpoint was taken from a game of the same shape.
+     *
+     * @throws IllegalArgumentException - if the number of players, the table size or the deck size differ, a card
+     *                                  appears twice, a score is negative, or a token is not on a slot of the table
+     *                                  (or a player has more than 3 tokens, or two on the same slot).
+     */
+    public void checkFits(Config config) {
+        if (scores.length != config.players || slotToCard.length != config.tableSize)
+            throw new IllegalArgumentException("the checkpoint has " + scores.length + " players and " + slotToCard.length
+                    + " slots, the game has " + config.players + " and " + config.tableSize);
+        boolean[] seen = new boolean[config.deckSize];
+        for (int[] cards : new int[][]{deck, slotToCard})
+            for (int card : cards) {
+                if (card == Table.EMPTY && cards == slotToCard) continue;
+                if (card < 0 || card >= config.deckSize)
+                    throw new IllegalArgumentException("the checkpoint has card " + card + ", the deck has " + config.deckSize);
+                if (seen[card])
+                    throw new IllegalArgumentException("the checkpoint has card " + card + " twice");
+                seen[card] = true;
+            }
+        for (int player = 0; player < scores.length; player++) {
+            if (scores[player] < 0)
+                throw new IllegalArgumentException("the checkpoint has score " + scores[player] + " for player " + player);
+            if (tokens[player].length > 3)
+                throw new IllegalArgumentException("the checkpoint has " + tokens[player].length + " tokens for player "
+                        + player);
+            boolean[] tokenOn = new boolean[config.tableSize];
+            for (int slot : tokens[player]) {
+                if (slot == -1) continue;
+                if (slot < 0 || slot >= config.tableSize)
+                    throw new IllegalArgumentException("the checkpoint has a token of player " + player + " on slot " + slot
+                            + ", the table has " + config.tableSize);
+                if (tokenOn[slot])
+                    throw new IllegalArgumentException("the checkpoint has two tokens of player " + player + " on slot "
+                            + slot);
+                tokenOn[slot] = true;
+            }
+        }
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file next to the given one, forces it to the disk, and renames it over the
+     * given file.
+     *
+     * @param file - the checkpoint file.
+     */
+    public void writeTo(Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 2 * (deck.length + slotToCard.length + 4 * scores.length));
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(takenAt);
+        writeVarLong(out, turnElapsedMillis);
+        writeVarLong(out, scores.length);
+        writeVarLong(out, slotToCard.length);
+        writeVarLong(out, deck.length);
+        for (int card : deck)
+            writeVarLong(out, card);
+        for (int card : slotToCard)
+            writeVarLong(out, card + 1); // EMPTY is -1
+        for (int player = 0; player < scores.length; player++) {
+            writeVarLong(out, scores[player]);
+            writeVarLong(out, tokens[player].length);
+            for (int slot : tokens[player])
+                writeVarLong(out, slot + 1);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray(), 0, bytes.size());
+        out.writeInt((int) crc.getValue());
+        out.flush();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream stream = Files.newOutputStream(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.SYNC)) {
+            bytes.writeTo(stream);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a checkpoint file.
+     *
+     * @param file - the checkpoint file.
+     * @return - the checkpoint.
+     * @throws IOException - if the file cannot be read, or it is not a valid checkpoint.
+     */
+    public static Checkpoint read(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < 4)
+            throw new IOException(file + " is not a checkpoint");
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        try {
+            if (in.readInt() != MAGIC)
+                throw new IOException(file + " is not a checkpoint");
+            int version = in.readShort();
+            if (version != VERSION)
+                throw new IOException(file + " has unsupported version " + version);
+            long takenAt = in.readLong();
+            long turnElapsedMillis = readVarLong(in);
+            int players = readLength(in);
+            int tableSize = readLength(in);
+            int[] deck = new int[readLength(in)];
+            for (int i = 0; i < deck.length; i++)
+                deck[i] = (int) readVarLong(in);
+            int[] slotToCard = new int[tableSize];
+            for (int slot = 0; slot < tableSize; slot++)
+                slotToCard[slot] = (int) readVarLong(in) - 1;
+            int[] scores = new int[players];
+            int[][] tokens = new int[players][];
+            for (int player = 0; player < players; player++) {
+                scores[player] = (int) readVarLong(in);
+                tokens[player] = new int[readLength(in)];
+                for (int i = 0; i < tokens[player].length; i++)
+                    tokens[player][i] = (int) readVarLong(in) - 1;
+            }
+            if (in.readInt() != (int) crc.getValue())
+                throw new IOException(file + " is corrupt (bad checksum)");
+            return new Checkpoint(takenAt, turnElapsedMillis, deck, slotToCard, scores, tokens);
+        } catch (EOFException e) {
+            throw new IOException(file + " is truncated");
+        }
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("malformed checkpoint");
+    }
+
+    private static int readLength(DataInput in) throws IOException {
+        long length = readVarLong(in);
+        if (length > 1 << 24)
+            throw new IOException("malformed checkpoint");
+        return (int) length;
+    }
+}
@@ -0,0 +1,116 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+import bguspl.set.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the checkpoints of a game on its own thread, so the dealer only pays for taking the snapshot. It holds at
+ * most one checkpoint waiting to be written: a newer one replaces it, so a slow disk never queues up work or blocks
+ * the dealer.
+ */
+public class Checkpointer implements Runnable {
+
+    private final Env env;
+
+    /**
+     * The checkpoint file.
+     */
+    private final Path file;
+
+    /**
+     * The checkpoint waiting to be written, or null (guarded by this).
+     */
+    private Checkpoint pending;
+    private boolean terminate;
+
+    /**
+     * The number of checkpoints written, and replaced by a newer one before they were written (guarded by this).
+     */
+    private int written;
+    private int superseded;
+
+    /**
+     * The time the dealer spent taking the snapshots.
+     */
+    final LatencyHistogram captureTime = new LatencyHistogram();
+
+    /**
+     * The class constructor.
+     *
+     * @param env  - the environment object.
+     * @param file - the checkpoint file.
+     */
+    public Checkpointer(Env env, Path file) {
+        this.env = env;
+        this.file = file;
+    }
+
+    /**
+     * Hands a checkpoint over to be written (never blocks for the write).
+     */
+    public synchronized void offer(Checkpoint checkpoint) {
+        if (pending != null)
+            superseded++;
+        pending = checkpoint;
+        notifyAll();
+    }
+
+    /**
+     * Writes the last checkpoint handed over (if any), and stops the writer thread.
+     */
+    public synchronized void terminate() {
+        terminate = true;
+        notifyAll();
+    }
+
+    /**
+     * Deletes the checkpoint file (e.g. when the game ended, and there is nothing left to resume). Must be called
+     * after the writer thread stopped, or it may write the file again.
+     */
+    public void discard() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            env.logger.warning("cannot delete checkpoint " + file + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            Checkpoint checkpoint;
+            synchronized (this) {
+                while (pending == null && !terminate) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+                if (pending == null)
+                    return;
+                checkpoint = pending;
+                pending = null;
+            }
+            try {
+                checkpoint.writeTo(file);
+                synchronized (this) {
+                    written++;
+                }
+            } catch (IOException e) {
+                env.logger.severe("cannot write checkpoint " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return - the number of checkpoints written and superseded, and the time taken to capture them.
+     */
+    public synchronized String report() {
+        return "checkpoints: " + written + " written to " + file + ", " + superseded + " superseded, capture time "
+                + captureTime;
+    }
+}
@@ -0,0 +1,120 @@
+package bguspl.set.ex;
+
+/**
+ * This class represents a set claimed by a player.
+ * A claim remembers the (slot, card, version) triples it was made against, so the dealer can tell in O(1) whether
+ * the table changed since then, and it carries the result of testing the cards as a set (computed by the player).
+ *
+ * @inv slots.length == cards.length == versions.length
+ */
+public class Claim {
+
+    /**
+     * The possible verdicts of the dealer.
+     */
+    public enum Verdict {
+        /**
+         * The cards form a legal set and the player is awarded a point.
+         */
+        POINT,
+        /**
+         * The cards do not form a legal set and the player is penalized.
+         */
+        PENALTY,
+        /**
+         * The table changed after the claim was made (or the round ended), so the claim is dropped.
+         */
+        STALE
+    }
+
+    /**
+     * The player that made the claim.
+     */
+    public final Player player;
+
+    /**
+     * The slots the claim was made on, the cards that were in them and the version of each slot at that time.
+     */
+    private final int[] slots;
+    private final int[] cards;
+    private final long[] versions;
+
+    /**
+     * True iff the claimed cards form a legal set.
+     */
+    private final boolean legalSet;
+
+    /**
+     * The verdict of the dealer (null until the claim is adjudicated).
+     */
+    private volatile Verdict verdict;
+
+    /**
+     * The class constructor.
+     *
+     * @param player   - the player that made the claim.
+     * @param slots    - the claimed slots.
+     * @param cards    - the cards that were in the slots (-1 for an empty slot).
+     * @param versions - the version of each slot when its card was read.
+     * @param legalSet - true iff the cards form a legal set.
+     */
+    Claim(Player player, int[] slots, int[] cards, long[] versions, boolean legalSet) {
+        this.player = player;
+        this.slots = slots;
+        this.cards = cards;
+        this.versions = versions;
+        this.legalSet = legalSet;
+    }
+
+    public int[] slots() {
+        return slots.clone();
+    }
+
+    public int[] cards() {
+        return cards.clone();
+    }
+
+    int slot(int i) {
+        return slots[i];
+    }
+
+    long version(int i) {
+        return versions[i];
+    }
+
+    int size() {
+        return slots.length;
+    }
+
+    /**
+     * @return - true iff all the claimed slots had a card in them.
+     */
+    public boolean isComplete() {
+        for (int card : cards)
+            if (card < 0)
+                return false;
+        return true;
+    }
+
+    public boolean isLegalSet() {
+        return legalSet;
+    }
+
+    public Verdict verdict() {
+        return verdict;
+    }
+
+    public boolean isDecided() {
+        return verdict != null;
+    }
+
+    /**
+     * Sets the verdict of the claim. Only the first verdict counts.
+     *
+     * @param verdict - the dealer's verdict.
+     */
+    void decide(Verdict verdict) {
+        if (this.verdict == null)
+            this.verdict = verdict;
+    }
+}
@@ -0,0 +1,123 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+
+/**
+ * This class renders the turn countdown (or the elapsed time) on its own thread, so the dealer does not have to wake
+ * up just to update the display. The remaining time is derived from the time the dealer last reset the countdown.
+ * In the warning window the display is updated CountdownFps times a second; otherwise once a second.
+ */
+public class CountdownPublisher implements Runnable {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The time the dealer last reset the countdown (in milliseconds, see System::currentTimeMillis).
+     */
+    private volatile long timeWhenReset;
+
+    /**
+     * True iff the publisher should stop.
+     */
+    private volatile boolean terminate;
+
+    /**
+     * True iff the countdown was reset since the publisher last updated the display (guarded by this).
+     */
+    private boolean resetPending;
+
+    /**
+     * The last values shown, to skip updates that would not change the display.
+     */
+    private long lastMillies = -1;
+    private boolean lastWarn;
+
+    public CountdownPublisher(Env env) {
+        this.env = env;
+        this.timeWhenReset = System.currentTimeMillis();
+    }
+
+    /**
+     * Restarts the countdown and updates the display right away.
+     *
+     * @param timeWhenReset - the time of the reset (in milliseconds, see System::currentTimeMillis).
+     */
+    public synchronized void reset(long timeWhenReset) {
+        this.timeWhenReset = timeWhenReset;
+        resetPending = true;
+        notifyAll();
+    }
+
+    /**
+     * Stops the publisher thread.
+     */
+    public synchronized void terminate() {
+        terminate = true;
+        notifyAll();
+    }
+
+    @Override
+    public void run() {
+        while (!terminate) {
+            long timeToSleep = publish(env.liveConfig(), System.currentTimeMillis());
+            synchronized (this) {
+                try {
+                    if (!terminate && !resetPending)
+                        wait(timeToSleep);
+                } catch (InterruptedException ignored) {
+                }
+                if (resetPending) {
+                    resetPending = false;
+                    lastMillies = -1; // show the new countdown even if it looks like the last one shown
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the display for the given time.
+     *
+     * @param config - the current configuration.
+     * @param now    - the current time.
+     * @return - the number of milliseconds until the display should be updated again.
+     */
+    private long publish(Config config, long now) {
+        long reset = timeWhenReset;
+        long timePast = now - reset;
+        long millisToNextSecond = 1000 - Math.floorMod(timePast, 1000);
+        if (config.turnTimeoutMillis > 0) {
+            long remaining = Math.max(0, config.turnTimeoutMillis - timePast);
+            if (config.turnTimeoutWarningMillis >= remaining) {
+                show(remaining, true);
+                return Math.max(1, 1000 / Math.max(1, config.countdownFps));
+            }
+            show(Math.round(remaining / 1000.0) * 1000, false);
+            // wake up at the next change of the rounded seconds, or when the warning starts
+            long untilRoundingChanges = Math.floorMod(remaining - 500, 1000) + 1;
+            return Math.max(1, Math.min(untilRoundingChanges, remaining - config.turnTimeoutWarningMillis));
+        }
+        if (config.turnTimeoutMillis == 0) {
+            long elapsed = timePast / 1000 * 1000;
+            if (elapsed != lastMillies || lastWarn) {
+                env.ui.setElapsed(timePast);
+                lastMillies = elapsed;
+                lastWarn = false;
+            }
+            return millisToNextSecond;
+        }
+        lastMillies = 0; // nothing is shown
+        return 1000;
+    }
+
+    private void show(long millies, boolean warn) {
+        if (millies == lastMillies && warn == lastWarn)
+            return;
+        env.ui.setCountdown(millies, warn);
+        lastMillies = millies;
+        lastWarn = warn;
+    }
+}
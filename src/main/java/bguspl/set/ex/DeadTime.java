@@ -0,0 +1,83 @@
+package bguspl.set.ex;
+
+import bguspl.set.LatencyHistogram;
+
+/**
+ * The dead time of a game: the periods from when the dealer finds the table without a set until the table has a set
+ * again (fixed by the table policy, or dealt again after a reshuffle). A period still open when the game ends is not
+ * counted, as play is over anyway.
+ * Updated by the dealer thread only; read it after the game ended, or from the dealer thread.
+ */
+public class DeadTime {
+
+    /**
+     * The length of every period.
+     */
+    private final LatencyHistogram periods = new LatencyHistogram();
+    private long totalNanos;
+
+    /**
+     * The number of periods ended by the table policy (and not by a reshuffle).
+     */
+    private int fixes;
+
+    /**
+     * The start of the current period (0 if the table has a set).
+     */
+    private long deadSince;
+
+    /**
+     * Called when the table has no set.
+     */
+    void dead() {
+        if (deadSince == 0)
+            deadSince = System.nanoTime();
+    }
+
+    /**
+     * Called when the table has a set.
+     */
+    void live() {
+        if (deadSince == 0)
+            return;
+        long nanos = System.nanoTime() - deadSince;
+        deadSince = 0;
+        periods.record(nanos);
+        totalNanos += nanos;
+    }
+
+    /**
+     * Called when the table policy gave the table a set.
+     */
+    void fixed() {
+        fixes++;
+        live();
+    }
+
+    /**
+     * @return - the total dead time, in nanoseconds.
+     */
+    public long totalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return - the number of times the table had no set.
+     */
+    public long periods() {
+        return periods.count();
+    }
+
+    /**
+     * @return - the number of times the table policy fixed the table.
+     */
+    public int fixes() {
+        return fixes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d tables without a set (%d fixed in place), dead time %.1fms (%s)", periods(), fixes,
+                totalNanos / 1e6, periods);
+    }
+}
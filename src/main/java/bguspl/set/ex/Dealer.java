@@ -1,10 +1,18 @@
 package bguspl.set.ex;
 
+import bguspl.set.Config;
 import bguspl.set.Env;
+import bguspl.set.GameEvents;
+import bguspl.set.LatencyHistogram;
+import bguspl.set.PlayerStatsStore;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -24,6 +32,11 @@ public class Dealer implements Runnable {
     private final Table table;
     private final Player[] players;
 
+    /**
+     * The scores of all the players.
+     */
+    private final Scoreboard scoreboard;
+
     /**
      * The list of card ids that are left in the dealer's deck.
      */
@@ -37,18 +50,109 @@ public class Dealer implements Runnable {
     /**
      * The time when the dealer needs to reshuffle the deck due to turn timeout.
      */
-    private long timeWhenReset;
+    private volatile long timeWhenReset;
+
+    /**
+     * Renders the countdown display on its own thread.
+     */
+    private final CountdownPublisher countdown;
+
+    /**
+     * Counts down once for every player thread that is up and running.
+     */
+    private final CountDownLatch playersStarted;
+
+    /**
+     * Drives the key presses of the computer players (null if they press keys on their own).
+     */
+    private LoadGenerator loadGenerator;
+
+    /**
+     * Measures the contention on the slot lock and the dealer lock (see LockProfiler).
+     */
+    private final LockProfiler profiler;
+    final LockProfiler.Probe slotLockProbe;
+    final LockProfiler.Probe dealerLockProbe;
+
+    /**
+     * The time from a key press on the keyboard until its token is placed or removed and shown (see
+     * Player::keyPressedAt).
+     */
+    final LatencyHistogram inputLatency = new LatencyHistogram();
+
+    /**
+     * Writes the checkpoints of the game (null if checkpoints are disabled), and the time of the last one.
+     */
+    private Checkpointer checkpointer;
+    private long lastCheckpoint;
+
+    /**
+     * The checkpoint the game resumes from (null for a new game).
+     */
+    private Checkpoint resumeFrom;
+
+    /**
+     * The number of points awarded to every player by the dealer (the scoreboard catches up once the players learn
+     * of their points, so this is what a checkpoint saves).
+     */
+    private final int[] awarded;
+
+    /**
+     * The engine that runs the game on the dealer thread instead of the rounds below, with no locks (null unless
+     * Config.engine is "EventLoop").
+     */
+    private final EventLoopEngine engine;
+
+    /**
+     * What to do with a table that has no set (see TablePolicy), and the dead time it leaves.
+     */
+    private final TablePolicy tablePolicy;
+    private final DeadTime deadTime = new DeadTime();
+
+    /**
+     * How the cards dealt are chosen from the deck (see DealingStrategy), and the number of times the table was dealt
+     * again during the game.
+     */
+    private final DealingStrategy dealingStrategy;
+    private int reshuffles;
+
+    /**
+     * The lifetime statistics of the players, updated when the game ends (null if they are not kept), and when the
+     * game started.
+     */
+    private PlayerStatsStore stats;
+    private long startedAt;
+
+    /**
+     * The number of points awarded in the current round (for the DealerRound event).
+     */
+    private int roundPoints;
+
     protected Thread[] playerThreads;
     public Object dealerTerminateLock;
     public Object dealerLock = new Object();
-    public LinkedList<Player> wasInteruppted;
+    /**
+     * The claims waiting for the dealer's verdict, in arrival order (guarded by dealerLock).
+     */
+    public LinkedList<Claim> pendingClaims;
 
     public Dealer(Env env, Table table, Player[] players) {
         this.env = env;
         this.table = table;
         this.players = players;
+        this.scoreboard = new Scoreboard(players.length);
+        this.playersStarted = new CountDownLatch(players.length);
+        this.awarded = new int[players.length];
         deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
-        wasInteruppted = new LinkedList<Player>();
+        pendingClaims = new LinkedList<Claim>();
+        countdown = new CountdownPublisher(env);
+        profiler = new LockProfiler(env.config.contentionSampleRate);
+        slotLockProbe = profiler.probe("slotLock");
+        dealerLockProbe = profiler.probe("dealerLock");
+        tablePolicy = tablePolicy(env);
+        dealingStrategy = dealingStrategy(env);
+        engine = "EventLoop".equalsIgnoreCase(env.config.engine)
+                ? new EventLoopEngine(env, table, players, this, deck, countdown) : null;
     }
 
     /**
@@ -56,41 +160,118 @@ public class Dealer implements Runnable {
      */
     @Override
     public void run() {
-        System.out.printf("Info: Thread %s starting.%n", Thread.currentThread().getName());
+        if (env.config.threadMessages)
+            System.out.printf("Info: Thread %s starting.%n", Thread.currentThread().getName());
+        if (LoadGenerator.isEnabled(env)) try {
+            loadGenerator = new LoadGenerator(env, players);
+        } catch (IllegalArgumentException e) {
+            env.logger.severe(e.getMessage() + ", the computer players will press keys as fast as they can");
+        }
+        boolean resumed = restore();
+        Thread checkpointThread = null;
+        if (checkpointer != null) {
+            checkpointThread = new Thread(checkpointer, "checkpoint");
+            checkpointThread.start();
+        }
         playerThreads = new Thread[players.length];
         for (int i = 0; i < players.length; i++) {
             Thread playerThread = new Thread (players[i] , "player "+i);
             playerThreads[i] = playerThread;
             playerThread.start();
-            synchronized (this){
-                try{
-                    this.wait();
-                }
-                catch (InterruptedException ignored) {}
+        }
+        Thread countdownThread = new Thread(countdown, "countdown");
+        countdownThread.setDaemon(true);
+        countdownThread.start();
+        try {
+            awaitPlayersStarted();
+        } catch (InterruptedException ignored) {}
+        if (loadGenerator != null)
+            loadGenerator.start();
+        startedAt = System.nanoTime();
+        if (engine != null)
+            engine.run();
+        else
+            playRounds(resumed);
+        countdown.terminate();
+        if (checkpointThread != null) {
+            checkpointer.terminate();
+            try {
+                checkpointThread.join();
+            } catch (InterruptedException ignored) {
             }
-
+            if (!terminate)
+                checkpointer.discard(); // the game is over, there is nothing to resume
+            env.logger.info(checkpointer.report());
         }
-        while (!shouldFinish()) {
-            shuffleDeck();
+        long lengthNanos = System.nanoTime() - startedAt;
+        finishProgram(); // a player applies the verdict it already got before it terminates, so the scores are final
+        if (stats != null && !terminate)
+            recordStats(lengthNanos);
+        announceWinners();
+        if (env.config.threadMessages)
+            System.out.printf("Info: Thread %s terminated.%n", Thread.currentThread().getName());
+    }
+
+    /**
+     * The rounds of the game: deal, play until the turn times out or there are no legal moves, and collect the cards.
+     *
+     * @param resumed - true iff the game was restored from a checkpoint (so the first round keeps its deck and table).
+     */
+    private void playRounds(boolean resumed) {
+        int round = 0;
+        while (resumed || !shouldFinish()) {
+            GameEvents.DealerRound event = new GameEvents.DealerRound();
+            event.begin();
+            roundPoints = 0;
+            if (round > 0)
+                countReshuffle();
+            if (!resumed)
+                shuffleDeck();
             placeCardsOnTable();
-            updateTimerDisplay(true);
+            resetTime(resumed ? resumeFrom.turnElapsedMillis : 0);
+            resumed = false;
+            checkpoint(true);
             timerLoop();
+            reshuffled();
+            long t = slotLockProbe.acquiring();
             try {
-                Player.slotLock.acquire();
+                table.slotLock.acquire();
+                t = slotLockProbe.acquired(t);
                 removeAllCardsFromTable();
-                for (int i = 0; i < playerThreads.length; i++) {
-                    players[i].noPointNopenalty = true;
-                }
-                wasInteruppted.clear();
-                synchronized (dealerLock){
-                    dealerLock.notifyAll();
-                }
-                Player.slotLock.release();
+                dropPendingClaims();
+                table.slotLock.release();
+                slotLockProbe.released(t);
+            }
+            catch (InterruptedException ignored){
+                slotLockProbe.abandoned(t);
             }
-            catch (InterruptedException ignored){}
+            if (event.shouldCommit()) {
+                event.round = round;
+                event.deckSize = deck.size();
+                event.points = roundPoints;
+                event.commit();
+            }
+            round++;
+        }
+    }
+
+    /**
+     * Emits a Reshuffle event (if it is being recorded) for the round that just ended.
+     */
+    private void reshuffled() {
+        GameEvents.Reshuffle event = new GameEvents.Reshuffle();
+        if (event.isEnabled()) {
+            Config config = env.liveConfig();
+            if (terminate)
+                event.reason = "terminated";
+            else if (config.turnTimeoutMillis > 0 && System.currentTimeMillis() - timeWhenReset >= config.turnTimeoutMillis)
+                event.reason = "timeout";
+            else
+                event.reason = "no sets";
+            event.cardsReturned = table.countCards();
+            event.deckSize = deck.size() + event.cardsReturned;
+            event.commit();
         }
-        announceWinners();
-        System.out.printf("Info: Thread %s terminated.%n", Thread.currentThread().getName());
     }
 
     private void shuffleDeck() {
@@ -102,88 +283,192 @@ public class Dealer implements Runnable {
      */
     private void timerLoop() {
         boolean toShuffle = false;
-        if (env.config.turnTimeoutMillis>0){
-            if (System.currentTimeMillis() - timeWhenReset>=env.config.turnTimeoutMillis)
+        Config config = env.liveConfig();
+        if (config.turnTimeoutMillis>0){
+            if (System.currentTimeMillis() - timeWhenReset>=config.turnTimeoutMillis)
                 toShuffle = true;
-            else if (checkLegalMoves())
+            else if (noLegalMoves())
                 toShuffle = env.util.findSets(deck, 1).size() == 0;
         }
         while (!terminate && !toShuffle) {
-            Player hasAClaim = null;
-            if (env.config.turnTimeoutMillis>0){
-                if ((System.currentTimeMillis() - timeWhenReset>=env.config.turnTimeoutMillis))
+            config = env.liveConfig();
+            if (config.turnTimeoutMillis>0){
+                if ((System.currentTimeMillis() - timeWhenReset>=config.turnTimeoutMillis))
                     toShuffle = true;
-                else if (checkLegalMoves()){
+                else if (noLegalMoves()){
                     toShuffle = env.util.findSets(deck, 1).size() == 0;
                 }
 
             }
             else {
-                toShuffle = checkLegalMoves();
-            }
-            sleepUntilWokenOrTimeout();
-            if (wasInteruppted.size()>0){
-                hasAClaim = wasInteruppted.removeLast();
-
+                toShuffle = noLegalMoves();
             }
-            updateTimerDisplay(false);
-            awardOrpenalized(hasAClaim);
+            if (!toShuffle)
+                sleepUntilWokenOrTimeout();
+            List<Claim> claims = takePendingClaims();
+            awardOrpenalized(claims);
             placeCardsOnTable();
+            checkpoint(false);
         }
     }
 
     private boolean checkLegalMoves() {
-        List<Integer> onTable = new LinkedList<>();
-        for (int i = 0; i < env.config.tableSize; i++) {
-            if (table.slotToCard[i]!=null)
-                onTable.add(table.slotToCard[i]);
-        }
-        return env.util.findSets(onTable, 1).size() == 0;
+        return !table.hasSet();
     }
 
-    private void awardOrpenalized(Player hasAClaim) {
-        if (hasAClaim==null){
-            return;
+    /**
+     * Checks if there are no legal moves on the table even after the table policy tried to fix it, and keeps track
+     * of the dead time: the time from when the table is found without a set until it has one again.
+     *
+     * @return - true iff there is no set on the table.
+     */
+    private boolean noLegalMoves() {
+        if (!checkLegalMoves()) {
+            deadTime.live();
+            return false;
+        }
+        deadTime.dead();
+        if (deck.isEmpty())
+            return true;
+        long t = slotLockProbe.acquiring();
+        try {
+            table.slotLock.acquire();
+        } catch (InterruptedException ignored) {
+            slotLockProbe.abandoned(t);
+            return true;
         }
-        int[] myCards = new int[3];
-        int first = table.slotToCard[hasAClaim.tokenPlacment[0]];
-        int second = table.slotToCard[hasAClaim.tokenPlacment[1]];
-        int third = table.slotToCard[hasAClaim.tokenPlacment[2]];
-        myCards[0] = first;
-        myCards[1] = second;
-        myCards[2] = third;
-        if (env.util.testSet(myCards)){
-            hasAClaim.shouldBeRewarded = true;
-            removeCardsFromTable(hasAClaim.tokenPlacment);
-            synchronized (dealerLock) {
-                dealerLock.notifyAll();
+        t = slotLockProbe.acquired(t);
+        boolean fixed = tablePolicy.fix(table, deck, slot -> {
+            table.removeCard(slot);
+            for (Player player : players)
+                player.removeTokenFromSlot(slot);
+        });
+        table.slotLock.release();
+        slotLockProbe.released(t);
+        if (!fixed)
+            return true;
+        deadTime.fixed();
+        if (env.config.hints)
+            table.hints();
+        return false;
+    }
+
+    /**
+     * Takes all the claims that arrived since the last time the dealer woke up.
+     *
+     * @return - the claims, in arrival order.
+     */
+    private List<Claim> takePendingClaims() {
+        List<Claim> claims = Collections.emptyList();
+        long t = dealerLockProbe.acquiring();
+        synchronized (dealerLock) {
+            t = dealerLockProbe.acquired(t);
+            if (!pendingClaims.isEmpty()) {
+                claims = new ArrayList<>(pendingClaims);
+                pendingClaims.clear();
             }
-            updateTimerDisplay(true);
+        }
+        dealerLockProbe.released(t);
+        return claims;
+    }
+
+    /**
+     * Gives the verdict on a batch of claims, in arrival order, against the current table.
+     * A claim made against cards that are no longer in their slots, or that shares a slot with an earlier winning
+     * set of the same batch, is dropped without a penalty. The sets were already tested by the players, so no lock
+     * is needed here. The cards of all the winning sets are removed together and replaced by a single deal.
+     */
+    private void awardOrpenalized(List<Claim> claims) {
+        if (claims.isEmpty()){
             return;
         }
-        else {
-            hasAClaim.shouldBeRewarded = false;
-            synchronized (dealerLock) {
-                dealerLock.notifyAll();
+        boolean[] won = new boolean[env.config.tableSize];
+        List<Integer> toRemove = new ArrayList<>();
+        for (Claim claim : claims) {
+            int[] slots = claim.slots();
+            boolean conflict = false;
+            for (int slot : slots)
+                conflict |= won[slot];
+            if (conflict || !claim.isComplete() || !table.isCurrent(claim))
+                claim.decide(Claim.Verdict.STALE);
+            else if (claim.isLegalSet()) {
+                for (int slot : slots) {
+                    won[slot] = true;
+                    toRemove.add(slot);
+                }
+                claim.decide(Claim.Verdict.POINT);
+                awarded[claim.player.id]++;
+                roundPoints++;
             }
-            return;
+            else
+                claim.decide(Claim.Verdict.PENALTY);
+            GameEvents.ClaimAdjudicated event = new GameEvents.ClaimAdjudicated();
+            if (event.isEnabled()) {
+                event.player = claim.player.id;
+                event.verdict = claim.verdict().name();
+                event.batchSize = claims.size();
+                event.commit();
+            }
+            env.events.claim(claim.player.id, claim.cards(), claim.verdict());
+        }
+        if (!toRemove.isEmpty()) {
+            removeCardsFromTable(toRemove.stream().mapToInt(Integer::intValue).toArray());
+            resetTime();
+        }
+        long t = dealerLockProbe.acquiring();
+        synchronized (dealerLock) {
+            t = dealerLockProbe.acquired(t);
+            dealerLock.notifyAll();
         }
+        dealerLockProbe.released(t);
     }
 
+    /**
+     * Drops all the claims that are still waiting for a verdict (e.g. because the round ended).
+     */
+    private void dropPendingClaims() {
+        long t = dealerLockProbe.acquiring();
+        synchronized (dealerLock) {
+            t = dealerLockProbe.acquired(t);
+            for (Claim claim : pendingClaims) {
+                claim.decide(Claim.Verdict.STALE);
+                env.events.claim(claim.player.id, claim.cards(), claim.verdict());
+            }
+            pendingClaims.clear();
+            dealerLock.notifyAll();
+        }
+        dealerLockProbe.released(t);
+    }
 
     /**
      * Called when the game should be terminated due to an external event.
      */
     public void terminate() {
         terminate =true;
+        if (engine != null)
+            engine.terminate();
+        wakeUp();
+    }
+
+    /**
+     * Wakes the dealer thread up (e.g. after the configuration changed) so it re-reads its deadlines.
+     */
+    public void wakeUp() {
+        if (engine != null)
+            engine.wakeUp();
+        synchronized (dealerLock) {
+            dealerLock.notifyAll();
+        }
     }
 
     private void finishProgram() {
+        if (loadGenerator != null) {
+            loadGenerator.stop();
+            env.logger.info(loadGenerator.report());
+        }
+        dropPendingClaims();
         for (int i =players.length-1 ; i>=0 ;i--) {
             players[i].terminate();
-            synchronized (players[i].playerThread){
-                players[i].playerThread.notifyAll();
-            }
             try {
                 playerThreads[i].join();
             } catch (InterruptedException ignore) {
@@ -201,17 +486,19 @@ public class Dealer implements Runnable {
     }
 
     /**
-     * Checks if any cards should be removed from the table and returns them to the deck.
+     * Removes the cards in the given slots from the table, together with all the tokens on them.
      */
     protected void removeCardsFromTable(int [] slotsToRemove) {
         if (slotsToRemove == null)
             return;
-        int[] ToRemove = {slotsToRemove[0],slotsToRemove[1],slotsToRemove[2]};
+        int[] ToRemove = slotsToRemove.clone();
 
+        long t = slotLockProbe.acquiring();
         try {
-            Player.slotLock.acquire();
+            table.slotLock.acquire();
         } catch (InterruptedException ignored) {
         }
+        t = slotLockProbe.acquired(t);
         for (int i = 0; i < ToRemove.length; i++) {
             table.removeCard(ToRemove[i]);
         }
@@ -220,89 +507,200 @@ public class Dealer implements Runnable {
                 players[j].removeTokenFromSlot(ToRemove[i]);
             }
         }
-        Player.slotLock.release();
-
+        table.slotLock.release();
+        slotLockProbe.released(t);
     }
 
     /**
      * Check if any cards can be removed from the deck and placed on the table.
      */
     private void placeCardsOnTable() {
-        for (int i = 0; i < table.slotToCard.length; i++) {
-            if(table.slotToCard[i] == null && !deck.isEmpty()){
-                Integer toPlace = deck.remove(0);
+        boolean placed = false;
+        int toDeal = Math.min(tablePolicy.dealtSlots(table.size()) - table.countCards(), deck.size());
+        for (int i = 0; i < table.size() && toDeal > 0; i++) {
+            if(!table.hasCard(i)){
+                int toPlace = dealingStrategy.take(table, deck, toDeal);
                 table.placeCard(toPlace, i);
+                toDeal--;
+                placed = true;
             }
         }
+        if (placed && env.config.hints)
+            table.hints();
     }
 
     /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
+     * Sleep until a claim arrives, the turn times out or the thread is awakened for some other purpose.
+     * The countdown display is updated by the countdown publisher, so there is no need to wake up for it.
      */
     private void sleepUntilWokenOrTimeout(){
-        long timeToSleep = 1000;                            //Defualt Sleep is 1 sc
-        if (env.config.turnTimeoutMillis>0 && env.config.turnTimeoutWarningMillis>(env.config.turnTimeoutMillis-(System.currentTimeMillis()-timeWhenReset)))
-            timeToSleep = Math.min(timeToSleep,10);
+        Config config = env.liveConfig();
+        long timeToSleep = 0;                               //No turn timeout: sleep until woken
+        if (config.turnTimeoutMillis>0)
+            timeToSleep = Math.max(1, config.turnTimeoutMillis-(System.currentTimeMillis()-timeWhenReset));
+        if (checkpointer != null) // wake up for the next checkpoint, to save the tokens placed meanwhile
+            timeToSleep = Math.max(1, Math.min(timeToSleep > 0 ? timeToSleep : Long.MAX_VALUE,
+                    config.checkpointIntervalMillis - (System.currentTimeMillis() - lastCheckpoint)));
+        long t = dealerLockProbe.acquiring();
         synchronized (dealerLock){
+            t = dealerLockProbe.acquired(t);
             try {
-                if(wasInteruppted.size()==0){
+                if(pendingClaims.isEmpty() && !terminate){
+                    dealerLockProbe.released(t);
                     dealerLock.wait(timeToSleep);
+                    t = dealerLockProbe.reacquired(t);
                 }
 
             } catch (InterruptedException ignored) {
             }
 
         }
+        dealerLockProbe.released(t);
     }
 
     /**
-     * Reset and/or update the countdown and the countdown display.
+     * Reset the countdown and the countdown display.
      */
-    private void updateTimerDisplay(boolean reset) {
-        if (reset){
-            resetTime();
+    private void resetTime (){
+        resetTime(0);
+    }
+
+    /**
+     * Reset the countdown and the countdown display, as if it was reset some time ago (e.g. when resuming a game).
+     *
+     * @param elapsedMillis - the time that passed since the countdown was reset.
+     */
+    private void resetTime(long elapsedMillis) {
+        timeWhenReset = System.currentTimeMillis() - elapsedMillis;
+        countdown.reset(timeWhenReset);
+    }
+
+    /**
+     * Checkpoints the game to be written in the background, if checkpoints are enabled and it is time for one.
+     * Only the tokens are read under the slot lock; the rest of the state belongs to the dealer thread, so this
+     * costs the dealer a copy of the deck and the table, whatever the disk does.
+     *
+     * @param force - true to checkpoint even if the checkpoint interval did not pass yet.
+     */
+    private void checkpoint(boolean force) {
+        if (checkpointer == null)
+            return;
+        long now = System.currentTimeMillis();
+        if (!force && now - lastCheckpoint < env.liveConfig().checkpointIntervalMillis)
+            return;
+        lastCheckpoint = now;
+        long start = System.nanoTime();
+        int[] slotToCard = new int[table.size()];
+        for (int slot = 0; slot < slotToCard.length; slot++)
+            slotToCard[slot] = table.cardAt(slot);
+        int[] deckCards = deck.stream().mapToInt(Integer::intValue).toArray();
+        int[][] tokens = new int[players.length][];
+        long t = slotLockProbe.acquiring();
+        try {
+            table.slotLock.acquire();
+        } catch (InterruptedException ignored) {
+            slotLockProbe.abandoned(t);
+            return;
+        }
+        t = slotLockProbe.acquired(t);
+        for (int i = 0; i < players.length; i++) {
+            // 3 tokens are a claim waiting for a verdict, which is not saved, so they are not saved either
+            tokens[i] = players[i].tokenCount < 3 ? players[i].tokenPlacment.clone() : new int[0];
         }
-        else {
-            // System.out.println("updateTimerDisplay1");
-            long currentTime = System.currentTimeMillis();
-            long timePast = currentTime - timeWhenReset;
-            if (env.config.turnTimeoutMillis>0){
-                if (env.config.turnTimeoutWarningMillis>env.config.turnTimeoutMillis-timePast)
-                    if (env.config.turnTimeoutMillis-timePast<0)
-                        env.ui.setCountdown(0,true);
-                    else
-                        env.ui.setCountdown(env.config.turnTimeoutMillis-timePast,true);
-                else{
-                    double doubleTimeToDisplay =  (double)((env.config.turnTimeoutMillis-timePast))/1000;
-                    long timeToDisplay = (Long)(Math.round(doubleTimeToDisplay)*1000);
-                    env.ui.setCountdown(timeToDisplay,false);
+        table.slotLock.release();
+        slotLockProbe.released(t);
+        checkpointer.offer(new Checkpoint(now, now - timeWhenReset, deckCards, slotToCard, awarded.clone(), tokens));
+        checkpointer.captureTime.record(System.nanoTime() - start);
+    }
 
-                }
-            }
-            else if (env.config.turnTimeoutMillis==0)
-                env.ui.setElapsed(timePast);
+    /**
+     * Checkpoints the game to the given file from now on (see Checkpoint). Must be called before the dealer starts.
+     *
+     * @param file - the checkpoint file.
+     */
+    public void checkpointTo(Path file) {
+        if (engine != null) {
+            env.logger.warning("the event loop engine does not take checkpoints");
+            return;
         }
+        checkpointer = new Checkpointer(env, file);
     }
 
-    private void resetTime (){
-        timeWhenReset = System.currentTimeMillis();
-        if (env.config.turnTimeoutMillis>0){
-            boolean toWarn = false;
-            if (env.config.turnTimeoutMillis <= env.config.turnTimeoutWarningMillis)
-                toWarn = true;
-            env.ui.setCountdown(env.config.turnTimeoutMillis,toWarn);
+    /**
+     * Adds the results of the game to the lifetime statistics of the players (by Config.playerNames) when it ends.
+     * A game that is terminated before it ends is not added. Must be called before the dealer starts.
+     *
+     * @param stats - the statistics store (may be shared by several games).
+     */
+    public void recordStatsTo(PlayerStatsStore stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Adds the results of the game that just ended to the lifetime statistics of the players.
+     *
+     * @param lengthNanos - the length of the game, in nanoseconds.
+     */
+    private void recordStats(long lengthNanos) {
+        Scoreboard.Snapshot snapshot = scoreboard.snapshot();
+        int[] winners = snapshot.winners();
+        boolean tie = winners.length > 1;
+        for (int player = 0; player < players.length; player++) {
+            boolean won = false;
+            for (int winner : winners)
+                won |= winner == player;
+            String name = env.config.playerNames[player];
+            if (!stats.addGame(name, snapshot.score(player), scoreboard.penalties(player), won, tie,
+                    scoreboard.claims(player), scoreboard.claimNanos(player), lengthNanos))
+                env.logger.warning("player statistics file " + stats + " is full, " + name + " was not added");
+        }
+    }
+
+    /**
+     * Resumes the game from a checkpoint instead of starting a new one. Must be called before the dealer starts.
+     *
+     * @param checkpoint - the checkpoint to resume from.
+     * @throws IllegalArgumentException - if the checkpoint does not fit the game (see Checkpoint::checkFits).
+     */
+    public void resumeFrom(Checkpoint checkpoint) {
+        if (engine != null)
+            throw new IllegalArgumentException("the event loop engine cannot resume a game");
+        checkpoint.checkFits(env.config);
+        resumeFrom = checkpoint;
+    }
+
+    /**
+     * Restores the deck, the table, the scores and the tokens from the checkpoint to resume from (if any), before
+     * the player threads start.
+     *
+     * @return - true iff the game was restored from a checkpoint.
+     */
+    private boolean restore() {
+        if (resumeFrom == null)
+            return false;
+        deck.clear();
+        for (int card : resumeFrom.deck)
+            deck.add(card);
+        for (int slot = 0; slot < resumeFrom.slotToCard.length; slot++)
+            if (resumeFrom.slotToCard[slot] != Table.EMPTY)
+                table.placeCard(resumeFrom.slotToCard[slot], slot);
+        for (int i = 0; i < players.length; i++) {
+            awarded[i] = resumeFrom.scores[i];
+            scoreboard.setScore(i, awarded[i]);
+            env.ui.setScore(i, awarded[i]);
+            players[i].restoreTokens(resumeFrom.tokens[i]);
         }
-        if (env.config.turnTimeoutMillis == 0)
-            env.ui.setElapsed(0);
+        env.logger.info("resumed the game checkpointed at " + new Date(resumeFrom.takenAt));
+        return true;
     }
 
     /**
      * Returns all the cards from the table to the deck.
      */
     private void removeAllCardsFromTable() {
-        for (int i = 0; i < table.slotToCard.length; i++) {
-            if (table.slotToCard[i]!=null){
-                deck.add(table.slotToCard[i]);
+        for (int i = 0; i < table.size(); i++) {
+            if (table.hasCard(i)){
+                deck.add(table.cardAt(i));
                 table.removeCard(i);
             }
             
@@ -321,28 +719,113 @@ public class Dealer implements Runnable {
     }
 
     /**
-     * Check who is/are the winner/s and displays them.
+     * Called by each player thread once it is ready to receive key presses.
      */
-    protected void announceWinners() {
-        int count = 1;
-        int bestScore = 0;
-        for (int i = 0; i < players.length; i++) {
-            if(bestScore < players[i].score()){
-                count = 1;
-                bestScore = players[i].score();
-            }
-            else if (bestScore == players[i].score())
-                count ++;
+    void playerStarted() {
+        playersStarted.countDown();
+    }
+
+    /**
+     * Waits until all the player threads are up and running.
+     */
+    public void awaitPlayersStarted() throws InterruptedException {
+        playersStarted.await();
+    }
+
+    /**
+     * @return - the load generator that drives the computer players, or null if they press keys on their own.
+     */
+    LoadGenerator loadGenerator() {
+        return loadGenerator;
+    }
+
+    /**
+     * @return - the event loop engine that runs the game, or null if the dealer and player threads run it.
+     */
+    EventLoopEngine engine() {
+        return engine;
+    }
+
+    /**
+     * @return - the configured table policy, or Reshuffle if it is not valid.
+     */
+    private static TablePolicy tablePolicy(Env env) {
+        try {
+            return TablePolicy.parse(env.config.tablePolicy, env.util);
+        } catch (IllegalArgumentException e) {
+            env.logger.severe(e.getMessage() + ", the table will be reshuffled");
+            return new TablePolicy.Reshuffle();
         }
-        int[] allWinners = new int[count];
-        count=0;
-        for (int i = 0; i < players.length; i++) {
-            if(players[i].score() == bestScore){
-                allWinners[count] = players[i].id;
-                count++;
-            }
+    }
+
+    /**
+     * @return - the configured dealing strategy, or TopOfDeck if it is not valid.
+     */
+    private static DealingStrategy dealingStrategy(Env env) {
+        try {
+            return DealingStrategy.parse(env.config.dealingStrategy);
+        } catch (IllegalArgumentException e) {
+            env.logger.severe(e.getMessage() + ", the cards will be dealt from the top of the deck");
+            return new DealingStrategy.TopOfDeck();
+        }
+    }
+
+    /**
+     * @return - how the dealer chooses the cards it deals.
+     */
+    DealingStrategy dealingStrategy() {
+        return dealingStrategy;
+    }
+
+    /**
+     * Counts a reshuffle: the whole table is about to be dealt again.
+     */
+    void countReshuffle() {
+        reshuffles++;
+    }
+
+    /**
+     * @return - the number of times the whole table was dealt again during the game.
+     */
+    public int reshuffles() {
+        return reshuffles;
+    }
+
+    /**
+     * @return - what the dealer does with a table that has no set.
+     */
+    TablePolicy tablePolicy() {
+        return tablePolicy;
+    }
+
+    /**
+     * @return - the time the table had no set during the game, while play went on (see DeadTime).
+     */
+    public DeadTime deadTime() {
+        return deadTime;
+    }
+
+    /**
+     * @return - the scoreboard of the game (safe to read from any thread).
+     */
+    public Scoreboard scoreboard() {
+        return scoreboard;
+    }
+
+    /**
+     * Check who is/are the winner/s and displays them. Called once the player threads terminated.
+     */
+    protected void announceWinners() {
+        env.logger.info(table.hintCache().toString());
+        if (profiler.isEnabled()) {
+            String report = profiler.report();
+            env.logger.info(report);
+            System.out.print(report);
         }
-        env.ui.announceWinner(allWinners);
-        finishProgram();
+        env.logger.info("table policy " + tablePolicy + ": " + deadTime);
+        env.logger.info("dealing strategy " + dealingStrategy + ": " + reshuffles + " reshuffles");
+        if (inputLatency.count() > 0)
+            env.logger.info("key press to token latency: " + inputLatency);
+        env.ui.announceWinner(scoreboard.snapshot().winners());
     }
-}
\ No newline at end of file
+}
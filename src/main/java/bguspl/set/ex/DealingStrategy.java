@@ -0,0 +1,70 @@
+package bguspl.set.ex;
+
+import java.util.List;
+
+/**
+ * How the dealer chooses the cards it deals into the empty slots of the table. A strategy is parsed from its name
+ * (see Config.dealingStrategy):
+ * "TopOfDeck" - always the top card of the (shuffled) deck (the original rule).
+ * "GuaranteedSet" - the top card, except for the last empty slot of a table with no set: there it deals the first
+ * deck card that completes a set with two cards on the table, if there is one. The check is incremental (see
+ * SetCompletions), so it costs one lookup per card on the table for every card dealt, and no search for sets.
+ * The other slots are dealt from the top, so the set is not always in the same slots.
+ */
+public abstract class DealingStrategy {
+
+    /**
+     * Takes the next card to deal from the deck.
+     *
+     * @param table     - the table the card is dealt to.
+     * @param deck      - the deck (not empty).
+     * @param remaining - the number of cards left to deal now, including this one.
+     * @return - the card taken (it is no longer in the deck).
+     */
+    public abstract int take(Table table, List<Integer> deck, int remaining);
+
+    /**
+     * Creates a dealing strategy from its name (see the class description).
+     *
+     * @param name - the name of the strategy.
+     * @return - the dealing strategy.
+     * @throws IllegalArgumentException - if there is no such strategy.
+     */
+    public static DealingStrategy parse(String name) {
+        switch (name.trim().toLowerCase()) {
+            case "topofdeck":
+                return new TopOfDeck();
+            case "guaranteedset":
+                return new GuaranteedSet();
+        }
+        throw new IllegalArgumentException("invalid dealing strategy: " + name);
+    }
+
+    static class TopOfDeck extends DealingStrategy {
+        @Override
+        public int take(Table table, List<Integer> deck, int remaining) {
+            return deck.remove(0);
+        }
+
+        @Override
+        public String toString() {
+            return "TopOfDeck";
+        }
+    }
+
+    static class GuaranteedSet extends DealingStrategy {
+        @Override
+        public int take(Table table, List<Integer> deck, int remaining) {
+            if (remaining == 1 && table.tracksCompletions() && !table.hasSet())
+                for (int i = 0; i < deck.size(); i++)
+                    if (table.completesSet(deck.get(i)))
+                        return deck.remove(i);
+            return deck.remove(0);
+        }
+
+        @Override
+        public String toString() {
+            return "GuaranteedSet";
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.GameEvents;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An alternate game engine, in which a single thread (the dealer thread) owns the table, the deck and the tokens of
+ * all the players, and is the only one to change them. The key presses of every player are messages on a bounded
+ * ring of that player (see InputRing), and the timers (the turn timeout, the freeze times) are deadlines of the loop,
+ * so there is no lock and no claim queue: a claim is decided the moment its third token is placed.
+ * The Dealer and Player classes stay a thin facade over it (see Config.engine): key presses go through
+ * Player::keyPressed and Player::keyPressedAt, and the player threads only wait for the game to end.
+ * Checkpoints are not taken in this mode.
+ */
+class EventLoopEngine {
+
+    private final Env env;
+    private final Table table;
+    private final Player[] players;
+    private final Dealer dealer;
+    private final List<Integer> deck;
+    private final CountdownPublisher countdown;
+
+    /**
+     * The pending key presses of every player.
+     */
+    private final InputRing[] inputs;
+    private final long[] stamp = new long[1];
+
+    /**
+     * The time every player's freeze ends (0 if not frozen), and the freeze time shown on the display.
+     */
+    private final long[] frozenUntil;
+    private final long[] freezeShown;
+
+    /**
+     * The thread running the event loop (null until it starts).
+     */
+    private volatile Thread loopThread;
+
+    /**
+     * The time the countdown was last reset.
+     */
+    private long timeWhenReset;
+
+    private volatile boolean terminate;
+
+    /**
+     * The class constructor.
+     *
+     * @param env       - the environment object.
+     * @param table     - the table, owned by the event loop from now on.
+     * @param players   - the players, whose tokens are owned by the event loop from now on.
+     * @param dealer    - the dealer (for the scoreboard and the input latency).
+     * @param deck      - the deck, owned by the event loop from now on.
+     * @param countdown - the countdown display.
+     */
+    EventLoopEngine(Env env, Table table, Player[] players, Dealer dealer, List<Integer> deck, CountdownPublisher countdown) {
+        this.env = env;
+        this.table = table;
+        this.players = players;
+        this.dealer = dealer;
+        this.deck = deck;
+        this.countdown = countdown;
+        inputs = new InputRing[players.length];
+        for (int i = 0; i < players.length; i++)
+            inputs[i] = new InputRing(3);
+        frozenUntil = new long[players.length];
+        freezeShown = new long[players.length];
+    }
+
+    /**
+     * Queues a key press of a player (may be called from any single thread per player, never blocks).
+     *
+     * @param player - the player id.
+     * @param slot   - the slot corresponding to the key pressed.
+     * @param nanos  - the time the key was pressed (see System::nanoTime).
+     * @return - true iff the key press was queued (false if there were already 3 pending key presses).
+     */
+    boolean keyPressed(int player, int slot, long nanos) {
+        if (!inputs[player].offer(slot, nanos))
+            return false;
+        wakeUp();
+        return true;
+    }
+
+    /**
+     * Wakes the event loop up (e.g. after a key press, or after the configuration changed).
+     */
+    void wakeUp() {
+        Thread thread = loopThread;
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * Ends the game at the next iteration of the event loop.
+     */
+    void terminate() {
+        terminate = true;
+        wakeUp();
+    }
+
+    /**
+     * Runs the game on the calling thread, until it is terminated or there are no sets left.
+     */
+    void run() {
+        loopThread = Thread.currentThread();
+        int round = 0;
+        while (!terminate && env.util.findSets(deck, 1).size() > 0) {
+            GameEvents.DealerRound event = new GameEvents.DealerRound();
+            event.begin();
+            if (round > 0)
+                dealer.countReshuffle();
+            Collections.shuffle(deck);
+            deal();
+            resetTime();
+            int points = playRound();
+            returnAllCards();
+            if (event.shouldCommit()) {
+                event.round = round;
+                event.deckSize = deck.size();
+                event.points = points;
+                event.commit();
+            }
+            round++;
+        }
+    }
+
+    /**
+     * The loop of a single round: handles the key presses and the timers until the turn times out or there are no
+     * legal moves left.
+     *
+     * @return - the number of points awarded in the round.
+     */
+    private int playRound() {
+        int points = 0;
+        while (!terminate) {
+            Config config = env.liveConfig();
+            long now = System.currentTimeMillis();
+            for (int player = 0; player < players.length; player++)
+                points += handleKeyPresses(player, now);
+            long deadline = updateFreezes(now);
+
+            now = System.currentTimeMillis();
+            if (config.turnTimeoutMillis > 0) {
+                long turnEnds = timeWhenReset + config.turnTimeoutMillis;
+                if (now >= turnEnds || (noLegalMoves() && env.util.findSets(deck, 1).isEmpty()))
+                    break;
+                deadline = Math.min(deadline, turnEnds);
+            } else if (noLegalMoves())
+                break;
+
+            if (hasPendingKeyPresses(now))
+                continue;
+            if (deadline == Long.MAX_VALUE)
+                LockSupport.park(this);
+            else
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(Math.max(1, deadline - now)));
+        }
+        return points;
+    }
+
+    /**
+     * Checks if there are no legal moves on the table even after the table policy tried to fix it (see
+     * Dealer::noLegalMoves).
+     *
+     * @return - true iff there is no set on the table.
+     */
+    private boolean noLegalMoves() {
+        DeadTime deadTime = dealer.deadTime();
+        if (table.hasSet()) {
+            deadTime.live();
+            return false;
+        }
+        deadTime.dead();
+        if (deck.isEmpty() || !dealer.tablePolicy().fix(table, deck, this::removeCard))
+            return true;
+        deadTime.fixed();
+        if (env.config.hints)
+            table.hints();
+        return false;
+    }
+
+    /**
+     * @return - true iff a player that is not frozen has pending key presses (so the loop must not sleep).
+     */
+    private boolean hasPendingKeyPresses(long now) {
+        for (int player = 0; player < players.length; player++)
+            if (frozenUntil[player] <= now && !inputs[player].isEmpty())
+                return true;
+        return false;
+    }
+
+    /**
+     * Handles the pending key presses of a player, unless the player is frozen. The key presses of a frozen player
+     * stay pending, as they would in the queue of its player thread.
+     *
+     * @return - the number of points awarded.
+     */
+    private int handleKeyPresses(int player, long now) {
+        if (frozenUntil[player] > now || inputs[player].isEmpty())
+            return 0;
+        int points = 0;
+        int slot;
+        while (frozenUntil[player] <= now && (slot = inputs[player].poll(stamp)) != -1)
+            points += toggleToken(player, slot, stamp[0]);
+        players[player].inputConsumed();
+        return points;
+    }
+
+    /**
+     * Places or removes a token of a player, and decides the claim if it was the player's third token.
+     *
+     * @return - the number of points awarded (0 or 1).
+     */
+    private int toggleToken(int id, int slot, long pressedAt) {
+        Player player = players[id];
+        boolean changed = false;
+        for (int i = 0; i < 3 && !changed; i++)
+            if (player.tokenPlacment[i] == slot) {
+                player.tokenPlacment[i] = -1;
+                player.tokenCount--;
+                env.ui.removeToken(id, slot);
+                changed = true;
+            }
+        boolean placed = false;
+        if (!changed && table.hasCard(slot))
+            for (int i = 0; i < 3 && !placed; i++)
+                if (player.tokenPlacment[i] == -1) {
+                    player.tokenPlacment[i] = slot;
+                    player.tokenCount++;
+                    table.placeToken(id, slot);
+                    placed = changed = true;
+                }
+        if (changed)
+            dealer.inputLatency.record(System.nanoTime() - pressedAt);
+        return placed && player.tokenCount == 3 ? decideClaim(id, pressedAt) : 0;
+    }
+
+    /**
+     * Decides the claim on the slots of a player's 3 tokens: awards a point and replaces the cards of a legal set, or
+     * penalizes the player.
+     *
+     * @param pressedAt - when the key that completed the claim was pressed.
+     * @return - the number of points awarded (0 or 1).
+     */
+    private int decideClaim(int id, long pressedAt) {
+        int[] slots = players[id].tokenPlacment.clone();
+        int[] cards = new int[slots.length];
+        for (int i = 0; i < slots.length; i++)
+            cards[i] = table.cardAt(slots[i]);
+        boolean legal = env.util.testSet(cards);
+        GameEvents.ClaimAdjudicated event = new GameEvents.ClaimAdjudicated();
+        if (event.isEnabled()) {
+            event.player = id;
+            event.verdict = legal ? Claim.Verdict.POINT.name() : Claim.Verdict.PENALTY.name();
+            event.batchSize = 1;
+            event.commit();
+        }
+        dealer.scoreboard().claimDecided(id, System.nanoTime() - pressedAt);
+        env.events.claim(id, cards, legal ? Claim.Verdict.POINT : Claim.Verdict.PENALTY);
+        if (!legal) {
+            dealer.scoreboard().penalty(id);
+            freeze(id, env.liveConfig().penaltyFreezeMillis);
+            return 0;
+        }
+        for (int slot : slots)
+            removeCard(slot);
+        env.ui.setScore(id, dealer.scoreboard().point(id));
+        freeze(id, env.liveConfig().pointFreezeMillis);
+        deal();
+        resetTime();
+        return 1;
+    }
+
+    /**
+     * Freezes a player: its key presses stay pending until the freeze time passes.
+     */
+    private void freeze(int player, long freezeMillis) {
+        env.ui.setFreeze(player, freezeMillis);
+        if (freezeMillis <= 0)
+            return;
+        frozenUntil[player] = System.currentTimeMillis() + freezeMillis;
+        freezeShown[player] = freezeMillis;
+    }
+
+    /**
+     * Counts down the freeze times on the display every second, and unfreezes the players whose freeze time passed.
+     *
+     * @return - the next time a freeze time changes (Long.MAX_VALUE if no player is frozen).
+     */
+    private long updateFreezes(long now) {
+        long deadline = Long.MAX_VALUE;
+        for (int player = 0; player < players.length; player++) {
+            if (frozenUntil[player] == 0)
+                continue;
+            long remaining = frozenUntil[player] - now;
+            if (remaining <= 0 || freezeShown[player] < 1000) {
+                if (remaining <= 0) {
+                    frozenUntil[player] = 0;
+                    env.ui.setFreeze(player, 0);
+                } else
+                    deadline = Math.min(deadline, frozenUntil[player]);
+                continue;
+            }
+            // the display goes down by a second at a time, like the player thread's own countdown does
+            long nextShown = freezeShown[player] - 1000;
+            long showAt = frozenUntil[player] - nextShown;
+            if (now >= showAt) {
+                freezeShown[player] = nextShown;
+                env.ui.setFreeze(player, nextShown);
+                showAt = frozenUntil[player] - (nextShown - 1000);
+            }
+            deadline = Math.min(deadline, Math.min(showAt, frozenUntil[player]));
+        }
+        return deadline;
+    }
+
+    /**
+     * Removes the card in a slot from the table, together with all the tokens on it.
+     */
+    private void removeCard(int slot) {
+        table.removeCard(slot);
+        for (Player player : players)
+            player.removeTokenFromSlot(slot);
+    }
+
+    /**
+     * Places cards from the deck in the empty slots, up to the number of cards the table policy deals.
+     */
+    private void deal() {
+        boolean placed = false;
+        int toDeal = Math.min(dealer.tablePolicy().dealtSlots(table.size()) - table.countCards(), deck.size());
+        for (int slot = 0; slot < table.size() && toDeal > 0; slot++)
+            if (!table.hasCard(slot)) {
+                table.placeCard(dealer.dealingStrategy().take(table, deck, toDeal), slot);
+                toDeal--;
+                placed = true;
+            }
+        if (placed && env.config.hints)
+            table.hints();
+    }
+
+    /**
+     * Returns all the cards from the table to the deck, with all the tokens on them, and drops the pending key
+     * presses.
+     */
+    private void returnAllCards() {
+        for (int slot = 0; slot < table.size(); slot++)
+            if (table.hasCard(slot)) {
+                deck.add(table.cardAt(slot));
+                table.removeCard(slot);
+            }
+        for (int i = 0; i < players.length; i++) {
+            Player player = players[i];
+            player.tokenCount = 0;
+            player.tokenPlacment[0] = -1;
+            player.tokenPlacment[1] = -1;
+            player.tokenPlacment[2] = -1;
+            inputs[i].discardPending();
+            player.inputConsumed();
+        }
+    }
+
+    private void resetTime() {
+        timeWhenReset = System.currentTimeMillis();
+        countdown.reset(timeWhenReset);
+    }
+}
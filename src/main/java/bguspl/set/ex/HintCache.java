@@ -0,0 +1,92 @@
+package bguspl.set.ex;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of the sets found on the table, keyed by the table's fingerprint (see Table::fingerprint).
+ * The least recently used entry is evicted when the cache is full.
+ */
+public class HintCache {
+
+    /**
+     * The sets found on a single table layout, and the hint text for them (rendered on first use).
+     */
+    static final class Entry {
+        final List<int[]> sets;
+        volatile String hints;
+
+        Entry(List<int[]> sets) {
+            this.sets = sets;
+        }
+    }
+
+    private final Map<Long, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The class constructor.
+     *
+     * @param capacity - the maximum number of table layouts to keep.
+     */
+    public HintCache(int capacity) {
+        entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, HintCache.Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Looks up the entry of a table layout and counts the lookup as a hit or a miss.
+     *
+     * @param fingerprint - the fingerprint of the table layout.
+     * @return - the entry of the table layout, or null if it is not in the cache.
+     */
+    Entry get(long fingerprint) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(fingerprint);
+        }
+        if (entry != null) hits.increment();
+        else misses.increment();
+        return entry;
+    }
+
+    /**
+     * Adds the entry of a table layout, evicting the least recently used entry if the cache is full.
+     *
+     * @param fingerprint - the fingerprint of the table layout.
+     * @param entry       - the entry of the table layout.
+     */
+    void put(long fingerprint, Entry entry) {
+        synchronized (entries) {
+            entries.put(fingerprint, entry);
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return - the fraction of lookups that were answered from the cache (0 if there were none).
+     */
+    public double hitRate() {
+        long hits = hits(), total = hits + misses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hint cache: %d hits, %d misses (%.1f%% hit rate)", hits(), misses(), 100 * hitRate());
+    }
+}
@@ -0,0 +1,99 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded single-producer single-consumer queue of key presses, each stamped with the time it happened (see
+ * System::nanoTime). The producer (the event dispatch thread) and the consumer (the player thread) never block or
+ * lock each other: each one only writes its own index, and reads the other's.
+ * Pending key presses can be discarded from any thread (see discardPending), without touching either index.
+ */
+public class InputRing {
+
+    private final int[] slots;
+    private final long[] stamps;
+    private final int mask;
+
+    /**
+     * The maximum number of pending key presses.
+     */
+    private final int limit;
+
+    /**
+     * The number of key presses ever taken (written by the consumer only) and ever added (written by the producer
+     * only). The entry of key press i is at index i & mask.
+     */
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Key presses stamped before this time are skipped by the consumer.
+     */
+    private volatile long discardBefore = System.nanoTime();
+
+    /**
+     * The class constructor.
+     *
+     * @param limit - the maximum number of pending key presses.
+     */
+    public InputRing(int limit) {
+        this.limit = limit;
+        int capacity = Integer.highestOneBit(Math.max(1, limit - 1)) << 1;
+        slots = new int[capacity];
+        stamps = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds a key press (producer only).
+     *
+     * @param slot  - the slot of the key pressed.
+     * @param stamp - the time the key was pressed.
+     * @return - true iff the key press was added (false if there were already limit pending key presses).
+     */
+    public boolean offer(int slot, long stamp) {
+        long t = tail.get();
+        if (t - head.get() >= limit)
+            return false;
+        int index = (int) t & mask;
+        slots[index] = slot;
+        stamps[index] = stamp;
+        tail.lazySet(t + 1); // publishes the entry to the consumer
+        return true;
+    }
+
+    /**
+     * @return - true iff there are no pending key presses (they may still be discarded when taken).
+     */
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * Takes the oldest pending key press that was not discarded (consumer only).
+     *
+     * @param stamp - receives the time the key was pressed, in stamp[0].
+     * @return - the slot of the key pressed, or -1 if there is none.
+     */
+    public int poll(long[] stamp) {
+        long h = head.get();
+        while (h != tail.get()) {
+            int index = (int) h & mask;
+            int slot = slots[index];
+            long time = stamps[index];
+            head.lazySet(++h); // frees the entry for the producer
+            if (time - discardBefore >= 0) {
+                stamp[0] = time;
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Discards the key presses pending now (may be called from any thread).
+     */
+    public void discardPending() {
+        discardBefore = System.nanoTime() + 1;
+    }
+}
@@ -0,0 +1,186 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+import bguspl.set.LatencyHistogram;
+import bguspl.set.ThreadLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives the key presses of the computer players from configurable arrival processes (see ArrivalProcess), instead
+ * of giving every computer player an AI thread of its own that presses keys as fast as its queue allows.
+ * The next key press of every player is scheduled on a single delay queue that is served by a few threads, so the
+ * key presses of any number of simulated players share them. At the end of the game it reports the achieved key
+ * press rate versus the target rate, the key presses rejected because the player's queue was full and the claim
+ * latencies.
+ * Only the AI threads are replaced: every simulated player is still a Player with a thread of its own, which places
+ * its tokens and waits for the dealer's verdict on its claims. So the game still runs one thread per player, and the
+ * number of simulated players is bounded by the number of threads the JVM can run.
+ */
+public class LoadGenerator {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The simulated players and their arrival processes.
+     */
+    private final List<Arrival> arrivals = new ArrayList<>();
+
+    /**
+     * The scheduled key presses, in time order.
+     */
+    private final DelayQueue<Arrival> schedule = new DelayQueue<>();
+
+    /**
+     * The threads that fire the key presses.
+     */
+    private final List<ThreadLogger> threads = new ArrayList<>();
+
+    /**
+     * The time between the submission of a claim and the dealer's verdict.
+     */
+    private final LatencyHistogram claimLatency = new LatencyHistogram();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean terminate;
+    private long startNanos;
+    private long stopNanos;
+
+    /**
+     * The class constructor.
+     *
+     * @param env     - the environment object.
+     * @param players - the players to drive (only the computer players are driven).
+     */
+    public LoadGenerator(Env env, Player[] players) {
+        this.env = env;
+        String[] specs = env.config.loadProcess.split(",");
+        int computer = 0;
+        for (Player player : players)
+            if (!player.getHuman())
+                arrivals.add(new Arrival(player, ArrivalProcess.parse(specs[computer++ % specs.length])));
+    }
+
+    /**
+     * @return - true iff the configuration asks for the computer players to be driven by a load generator.
+     */
+    public static boolean isEnabled(Env env) {
+        return !env.config.loadProcess.trim().isEmpty();
+    }
+
+    /**
+     * Schedules the first key press of every player and starts the threads.
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+        Random random = ThreadLocalRandom.current();
+        for (Arrival arrival : arrivals) {
+            arrival.dueNanos = startNanos + arrival.process.nextDelayNanos(random);
+            schedule.add(arrival);
+        }
+        int threadCount = Math.max(1, Math.min(env.config.loadThreads, arrivals.size()));
+        for (int i = 0; i < threadCount; i++) {
+            ThreadLogger thread = new ThreadLogger(this::fire, "load-" + i, env.logger);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.startWithLog();
+        }
+    }
+
+    /**
+     * Stops the threads and waits for them to finish.
+     */
+    public void stop() {
+        terminate = true;
+        for (ThreadLogger thread : threads)
+            thread.interrupt();
+        for (ThreadLogger thread : threads)
+            try {
+                thread.joinWithLog();
+            } catch (InterruptedException ignored) {
+            }
+        stopNanos = System.nanoTime();
+    }
+
+    /**
+     * The main loop of the generator threads: waits for the next due key press, fires it and schedules the next one.
+     */
+    private void fire() {
+        Random random = ThreadLocalRandom.current();
+        while (!terminate) {
+            Arrival arrival;
+            try {
+                arrival = schedule.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            int slot = arrival.player.chooseSlot(random);
+            if (slot != -1) {
+                if (arrival.player.keyPressed(slot)) accepted.increment();
+                else rejected.increment();
+            }
+            // keep to the schedule even if this thread fell behind, so the target rate stays the same
+            arrival.dueNanos += arrival.process.nextDelayNanos(random);
+            schedule.add(arrival);
+        }
+    }
+
+    /**
+     * Records the time a claim waited for the dealer's verdict.
+     *
+     * @param nanos - the latency in nanoseconds.
+     */
+    void recordClaimLatency(long nanos) {
+        claimLatency.record(nanos);
+    }
+
+    /**
+     * @return - the achieved key press rate versus the target rate, the rejected key presses and the claim latencies.
+     */
+    public String report() {
+        double seconds = ((stopNanos != 0 ? stopNanos : System.nanoTime()) - startNanos) / 1e9;
+        double target = 0;
+        for (Arrival arrival : arrivals)
+            target += arrival.process.rate;
+        long accepted = this.accepted.sum(), rejected = this.rejected.sum();
+        return String.format("load generator: %d players on %d threads, target %.1f keys/s, achieved %.1f keys/s "
+                        + "(%d accepted, %d rejected because the queue was full, %.1f%%), claim latency %s",
+                arrivals.size(), threads.size(), target, seconds > 0 ? accepted / seconds : 0, accepted, rejected,
+                accepted + rejected == 0 ? 0 : 100.0 * rejected / (accepted + rejected), claimLatency);
+    }
+
+    /**
+     * The next key press of a single simulated player.
+     */
+    private static class Arrival implements Delayed {
+        final Player player;
+        final ArrivalProcess process;
+        long dueNanos;
+
+        Arrival(Player player, ArrivalProcess process) {
+            this.player = player;
+            this.process = process;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueNanos, ((Arrival) other).dueNanos);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package bguspl.set.ex;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the contention on the game's locks (the table's slot lock and the dealer's lock): how long every thread
+ * waits to acquire them, how long it holds them and how many threads are waiting when it arrives.
+ * Only a random sample of the acquisitions (one in ContentionSampleRate) is timed, so the overhead is low; when the
+ * sample rate is 0 every probe returns right away.
+ * A probe is used around every acquisition:
+ * <pre>
+ * long t = probe.acquiring();
+ * lock.acquire(); // if it is interrupted: probe.abandoned(t)
+ * t = probe.acquired(t);
+ * ...
+ * lock.release();
+ * probe.released(t);
+ * </pre>
+ */
+public class LockProfiler {
+
+    /**
+     * Returned by the probes for acquisitions that are not sampled.
+     */
+    static final long NOT_SAMPLED = -1;
+
+    /**
+     * Returned by acquiring for acquisitions that are counted in the queue length but not timed.
+     */
+    private static final long COUNTED = -2;
+
+    private final int sampleRate;
+    private final List<Probe> probes = new ArrayList<>();
+
+    /**
+     * The class constructor.
+     *
+     * @param sampleRate - time one in this many acquisitions (0 to disable profiling).
+     */
+    public LockProfiler(int sampleRate) {
+        this.sampleRate = Math.max(0, sampleRate);
+    }
+
+    public boolean isEnabled() {
+        return sampleRate > 0;
+    }
+
+    /**
+     * Creates the probe of a lock.
+     *
+     * @param lock - the name of the lock.
+     * @return - the probe.
+     */
+    public synchronized Probe probe(String lock) {
+        Probe probe = new Probe(lock);
+        probes.add(probe);
+        return probe;
+    }
+
+    /**
+     * The probe of a single lock.
+     */
+    public class Probe {
+
+        private final String lock;
+
+        /**
+         * The number of threads waiting to acquire the lock (counted for every acquisition while profiling).
+         */
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        /**
+         * The statistics of every thread that acquired the lock.
+         */
+        private final Map<String, Stats> threads = new ConcurrentHashMap<>();
+
+        private Probe(String lock) {
+            this.lock = lock;
+        }
+
+        /**
+         * Called right before trying to acquire the lock.
+         *
+         * @return - the time the thread started waiting, or NOT_SAMPLED.
+         */
+        public long acquiring() {
+            if (sampleRate == 0) return NOT_SAMPLED;
+            int queue = waiting.getAndIncrement();
+            if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0)
+                return COUNTED;
+            stats().queue(queue);
+            return System.nanoTime();
+        }
+
+        /**
+         * Called right after the lock was acquired.
+         *
+         * @param waitStart - the value returned by acquiring.
+         * @return - the time the lock was acquired, or NOT_SAMPLED.
+         */
+        public long acquired(long waitStart) {
+            if (waitStart == NOT_SAMPLED) return NOT_SAMPLED;
+            waiting.decrementAndGet();
+            if (waitStart == COUNTED) return NOT_SAMPLED;
+            long now = System.nanoTime();
+            stats().waited(now - waitStart);
+            return now;
+        }
+
+        /**
+         * Called instead of acquired when the thread gave up acquiring the lock (e.g. it was interrupted), so it is no
+         * longer counted as waiting.
+         *
+         * @param waitStart - the value returned by acquiring.
+         */
+        public void abandoned(long waitStart) {
+            if (waitStart != NOT_SAMPLED)
+                waiting.decrementAndGet();
+        }
+
+        /**
+         * Called right after the lock was re-acquired without contention being of interest (e.g. when Object::wait
+         * returns), to time the rest of the hold.
+         *
+         * @param holdStart - a value returned by acquired before the lock was released.
+         * @return - the time the lock was re-acquired, or NOT_SAMPLED.
+         */
+        public long reacquired(long holdStart) {
+            return holdStart == NOT_SAMPLED ? NOT_SAMPLED : System.nanoTime();
+        }
+
+        /**
+         * Called right after the lock was released.
+         *
+         * @param holdStart - the value returned by acquired (or reacquired).
+         */
+        public void released(long holdStart) {
+            if (holdStart != NOT_SAMPLED)
+                stats().held(System.nanoTime() - holdStart);
+        }
+
+        private Stats stats() {
+            return threads.computeIfAbsent(Thread.currentThread().getName(), thread -> new Stats(lock, thread));
+        }
+    }
+
+    /**
+     * The sampled statistics of a single thread on a single lock.
+     */
+    private static class Stats {
+        final String lock;
+        final String thread;
+        final LongAdder samples = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder holds = new LongAdder();
+        final LongAdder holdNanos = new LongAdder();
+        final LongAccumulator maxHoldNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder queueSum = new LongAdder();
+        final LongAccumulator maxQueue = new LongAccumulator(Math::max, 0);
+
+        Stats(String lock, String thread) {
+            this.lock = lock;
+            this.thread = thread;
+        }
+
+        void queue(int length) {
+            queueSum.add(length);
+            maxQueue.accumulate(length);
+        }
+
+        void waited(long nanos) {
+            samples.increment();
+            waitNanos.add(nanos);
+            maxWaitNanos.accumulate(nanos);
+        }
+
+        void held(long nanos) {
+            holds.increment();
+            holdNanos.add(nanos);
+            maxHoldNanos.accumulate(nanos);
+        }
+    }
+
+    /**
+     * @return - the statistics of every (lock, thread) pair, ranked by the total sampled wait time.
+     */
+    public synchronized String report() {
+        List<Stats> all = new ArrayList<>();
+        for (Probe probe : probes)
+            all.addAll(probe.threads.values());
+        all.sort(Comparator.comparingLong((Stats stats) -> stats.waitNanos.sum()).reversed());
+
+        StringBuilder report = new StringBuilder(String.format("lock contention (1 in %d acquisitions sampled, ranked by total wait):%n", sampleRate));
+        report.append(String.format("%-12s %-12s %8s %12s %10s %10s %10s %10s %7s %5s%n", "lock", "thread", "samples",
+                "wait total", "wait mean", "wait max", "hold mean", "hold max", "queue", "max"));
+        for (Stats stats : all) {
+            long samples = stats.samples.sum(), holds = stats.holds.sum();
+            report.append(String.format("%-12s %-12s %8d %10.2fms %8.1fus %8.1fus %8.1fus %8.1fus %7.2f %5d%n",
+                    stats.lock, stats.thread, samples, stats.waitNanos.sum() / 1e6,
+                    samples == 0 ? 0 : stats.waitNanos.sum() / 1e3 / samples, stats.maxWaitNanos.get() / 1e3,
+                    holds == 0 ? 0 : stats.holdNanos.sum() / 1e3 / holds, stats.maxHoldNanos.get() / 1e3,
+                    samples == 0 ? 0 : (double) stats.queueSum.sum() / samples, stats.maxQueue.get()));
+        }
+        return report.toString();
+    }
+}
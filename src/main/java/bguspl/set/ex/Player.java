@@ -1,9 +1,12 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.GameEvents;
 
+import java.util.Arrays;
+import java.util.Random;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * This class manages the players' threads and data
@@ -48,22 +51,19 @@ public class Player implements Runnable {
      */
     protected volatile boolean terminate;
 
+    private volatile ConcurrentLinkedQueue<Integer> keyPressed;
+
     /**
-     * The current score of the player.
+     * The key presses from the keyboard, each stamped with the time it happened (see keyPressedAt).
      */
-
-    private volatile ConcurrentLinkedQueue<Integer> keyPressed;
-    private int score;
+    private final InputRing input = new InputRing(3);
+    private final long[] inputStamp = new long[1];
     private Dealer myDealer;
 
 
-    public boolean shouldBeRewarded = false;
     public volatile int tokenCount = 0;
     public volatile int[] tokenPlacment = {-1, -1, -1};
     public Object playerAILock = new Object();
-    static public Semaphore slotLock = new Semaphore(1,true);
-    static public Semaphore smpr = new Semaphore(1,true);
-    public boolean noPointNopenalty = false;
 
 
 
@@ -91,34 +91,24 @@ public class Player implements Runnable {
     @Override
     public void run() {
         playerThread = Thread.currentThread();
-        System.out.printf("Info: Thread %s starting.%n", Thread.currentThread().getName());
-        if (!human) createArtificialIntelligence();
-        synchronized (myDealer){
-            myDealer.notifyAll();
-        }
+        if (env.config.threadMessages)
+            System.out.printf("Info: Thread %s starting.%n", Thread.currentThread().getName());
+        if (!human && myDealer.loadGenerator() == null) createArtificialIntelligence();
+        myDealer.playerStarted();
         while (!terminate) {
-            synchronized (playerThread) {
-                while (keyPressed.isEmpty() && !terminate) {
-                    try{
-                        Thread.sleep(1);
-                    }
-                    catch (InterruptedException ignore){}
-                    try {
-                        playerThread.wait();
-                    } catch (InterruptedException e) {
-                    }
-                }
-            }
+            while (keyPressed.isEmpty() && input.isEmpty() && !terminate)
+                LockSupport.park(this);
             placeToken();
         }
-        if (!human) try {
+        if (aiThread != null) try {
             synchronized (playerAILock){
                 playerAILock.notifyAll();
             }
             aiThread.join();
         } catch (InterruptedException ignored) {
         }
-        System.out.printf("Info: Thread %s terminated.%n", Thread.currentThread().getName());
+        if (env.config.threadMessages)
+            System.out.printf("Info: Thread %s terminated.%n", Thread.currentThread().getName());
     }
 
 
@@ -129,8 +119,10 @@ public class Player implements Runnable {
      */
     private void createArtificialIntelligence() {
         // note: this is a very very smart AI (!)
+        Random random = new Random();
         aiThread = new Thread(() -> {
-            System.out.printf("Info: Thread %s starting.%n", Thread.currentThread().getName());
+            if (env.config.threadMessages)
+                System.out.printf("Info: Thread %s starting.%n", Thread.currentThread().getName());
             while (!terminate) {
                 synchronized (playerAILock) {
                     while (keyPressed.size()==3 && !terminate) {
@@ -139,22 +131,13 @@ public class Player implements Runnable {
                         } catch (InterruptedException ignored) {
                         }
                     }
-                }   
-                int x;
-                do{
-                    if (tokenCount<3) {
-                        do {
-                            x = (int) (Math.random() * env.config.tableSize);
-                        }
-                        while (!isOkSlot(x));
-                    }
-                    else {
-                        x = tokenPlacment[(int) (Math.random() * 3)];
-                    }
-                } while (x==-1);
-                keyPressed(x);
+                }
+                int x = chooseSlot(random);
+                if (x != -1 && !keyPressed(x) && myDealer.engine() != null)
+                    LockSupport.park(this); // until the event loop takes some key presses (see inputConsumed)
             }
-            System.out.printf("Info: Thread %s terminated.%n", Thread.currentThread().getName());
+            if (env.config.threadMessages)
+                System.out.printf("Info: Thread %s terminated.%n", Thread.currentThread().getName());
         }, "computer-" + id);
         aiThread.start();
     }
@@ -164,6 +147,26 @@ public class Player implements Runnable {
      */
     public void terminate() {
         terminate = true;
+        wakeUp();
+        inputConsumed();
+    }
+
+    /**
+     * Called by the event loop engine after it took key presses of the player, so the AI can press more.
+     */
+    void inputConsumed() {
+        Thread thread = aiThread;
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * Wakes the player thread up if it waits for a key press.
+     */
+    private void wakeUp() {
+        Thread thread = playerThread;
+        if (thread != null)
+            LockSupport.unpark(thread);
     }
 
     public boolean isOkSlot(int x){
@@ -174,83 +177,171 @@ public class Player implements Runnable {
         }
         return toReturn;
     }
+    /**
+     * Chooses the next slot a computer player presses: a slot without one of its tokens while it has fewer than 3
+     * tokens, and one of its tokens otherwise.
+     *
+     * @param random - the random number generator to use.
+     * @return - the slot to press, or -1 if there is none (its tokens were just removed).
+     */
+    public int chooseSlot(Random random) {
+        if (tokenCount < 3) {
+            int x;
+            do {
+                x = random.nextInt(env.config.tableSize);
+            }
+            while (!isOkSlot(x));
+            return x;
+        }
+        return tokenPlacment[random.nextInt(3)];
+    }
+
     /**
      * This method is called when a key is pressed.
      *
      * @param slot - the slot corresponding to the key pressed.
+     * @return - true iff the key press was queued (false if the queue of key presses was full).
      */
-    public void keyPressed(int slot) {
+    public boolean keyPressed(int slot) {
+        EventLoopEngine engine = myDealer.engine();
+        if (engine != null)
+            return engine.keyPressed(id, slot, System.nanoTime());
         synchronized (playerThread){
             if (keyPressed.size() < 3) {
                 keyPressed.add(slot);
-                playerThread.notifyAll();
+                wakeUp();
+                return true;
             }
+            return false;
         }
     }
 
+    /**
+     * This method is called when a key is pressed on the keyboard. It neither blocks nor locks, so it may be called
+     * on the event dispatch thread.
+     *
+     * @param slot  - the slot corresponding to the key pressed.
+     * @param nanos - the time the key was pressed (see System::nanoTime).
+     * @return - true iff the key press was queued (false if there were already 3 pending key presses).
+     */
+    public boolean keyPressedAt(int slot, long nanos) {
+        EventLoopEngine engine = myDealer.engine();
+        if (engine != null)
+            return engine.keyPressed(id, slot, nanos);
+        if (!input.offer(slot, nanos))
+            return false;
+        wakeUp();
+        return true;
+    }
+
     private void placeToken() {
         boolean found = false;
         boolean placed = false;
-        int slot = -1;
-        synchronized (playerAILock){
-            if (!keyPressed.isEmpty())
-                slot = (Integer) keyPressed.remove();
-            if (!human)
-                playerAILock.notifyAll();
+        Claim claim = null;
+        long pressedAt = 0;
+        int slot = input.poll(inputStamp);
+        if (slot != -1) {
+            pressedAt = inputStamp[0];
+            env.logger.severe("key for slot " + slot + " was pressed by player " + (id + 1));
+        } else {
+            synchronized (playerAILock){
+                if (!keyPressed.isEmpty())
+                    slot = (Integer) keyPressed.remove();
+                if (!human)
+                    playerAILock.notifyAll();
+            }
         }
         if (slot!=-1) {
+            LockProfiler.Probe probe = myDealer.slotLockProbe;
+            long t = probe.acquiring();
             try{
-                slotLock.acquire();
+                table.slotLock.acquire();
+                t = probe.acquired(t);
                     for (int i = 0; i < 3; i++) {
                         if (tokenPlacment[i] == slot) {
                             tokenPlacment[i] = -1;
                             tokenCount--;
                             env.ui.removeToken(this.id,slot);
                             found = true;
+                            tokenToggled(slot, false);
                         }
                     }
-                    if (!found && table.slotToCard[slot]!=null) {
+                    if (!found && table.hasCard(slot)) {
                         for (int i = 0; i < 3 && !placed; i++) {
                             if (tokenPlacment[i] == -1) {
                                 tokenCount++;
                                 tokenPlacment[i] = slot;
                                 table.placeToken(id, slot);
                                 placed = true;
+                                tokenToggled(slot, true);
                             }
                         }
                     }
-                slotLock.release();
-            }catch (InterruptedException ignored) {}
-            try {
-                smpr.acquire();
-                if (placed && tokenCount == 3){
-                    claimToAPoint();
-                }
-                else
-                    smpr.release();
-            } catch (InterruptedException ignored) {
+                    if (placed && tokenCount == 3)
+                        claim = table.claim(this, tokenPlacment);
+                table.slotLock.release();
+                probe.released(t);
+                if (pressedAt != 0 && (found || placed))
+                    myDealer.inputLatency.record(System.nanoTime() - pressedAt);
+            }catch (InterruptedException ignored) {
+                probe.abandoned(t);
             }
+            if (claim != null)
+                claimToAPoint(claim, pressedAt);
         }
     }
-    
 
-    private void claimToAPoint() {
+    private void tokenToggled(int slot, boolean placed) {
+        GameEvents.TokenToggle event = new GameEvents.TokenToggle();
+        if (event.isEnabled()) {
+            event.player = id;
+            event.slot = slot;
+            event.placed = placed;
+            event.commit();
+        }
+    }
+
+    /**
+     * Submits a claim on the slots of the player's tokens and waits for the dealer's verdict.
+     * The cards were read and tested on this thread; the dealer only checks that the claim is not stale.
+     *
+     * @param claim     - the claim, made while the player's tokens could not change.
+     * @param pressedAt - when the key that completed the claim was pressed (0 if unknown).
+     */
+    private void claimToAPoint(Claim claim, long pressedAt) {
+        long submitted = System.nanoTime();
+        GameEvents.ClaimSubmitted event = new GameEvents.ClaimSubmitted();
+        if (event.isEnabled()) {
+            event.player = id;
+            event.cards = Arrays.toString(claim.cards());
+            event.legalSet = claim.isLegalSet();
+            event.commit();
+        }
+        LockProfiler.Probe probe = myDealer.dealerLockProbe;
+        long t = probe.acquiring();
         synchronized (myDealer.dealerLock){
-            myDealer.wasInteruppted.addFirst(this);
+            t = probe.acquired(t);
+            myDealer.pendingClaims.addLast(claim);
             myDealer.dealerLock.notifyAll();
+            while (!claim.isDecided() && !terminate) {
+                probe.released(t);
                 try {
                     myDealer.dealerLock.wait();
-               } catch (InterruptedException e) {
-               }
+                } catch (InterruptedException ignored) {
+                }
+                t = probe.reacquired(t);
+            }
         }
-        smpr.release();
-        if (!noPointNopenalty)
-            if (shouldBeRewarded)
-                point();
-            else
-                penalty();
-        else
-            noPointNopenalty = false;
+        probe.released(t);
+        LoadGenerator loadGenerator = myDealer.loadGenerator();
+        if (loadGenerator != null)
+            loadGenerator.recordClaimLatency(System.nanoTime() - submitted);
+        if (claim.isDecided())
+            myDealer.scoreboard().claimDecided(id, System.nanoTime() - (pressedAt != 0 ? pressedAt : submitted));
+        if (claim.verdict() == Claim.Verdict.POINT)
+            point();
+        else if (claim.verdict() == Claim.Verdict.PENALTY)
+            penalty();
     }
 
 
@@ -261,19 +352,8 @@ public class Player implements Runnable {
      * @post - the player's score is updated in the ui.
      */
     public void point() {
-        env.ui.setScore(id, ++score);
-        env.ui.setFreeze(this.id,env.config.pointFreezeMillis);
-        try {
-            long timeToSleep = env.config.pointFreezeMillis;
-            while (timeToSleep>=1000) {
-                timeToSleep = timeToSleep - 1000;
-                Thread.sleep(1000);
-                env.ui.setFreeze(this.id, timeToSleep);
-            }
-
-        } catch (InterruptedException ignore) {
-        }
-        env.ui.setFreeze(this.id, 0);
+        env.ui.setScore(id, myDealer.scoreboard().point(id));
+        freeze(env.liveConfig().pointFreezeMillis, "point");
         int ignored = table.countCards(); // this part is just for demonstration in the unit tests
 
     }
@@ -282,9 +362,22 @@ public class Player implements Runnable {
      * Penalize a player and perform other related actions.
      */
     public void penalty() {
-        env.ui.setFreeze(this.id,env.config.penaltyFreezeMillis);
+        myDealer.scoreboard().penalty(id);
+        freeze(env.liveConfig().penaltyFreezeMillis, "penalty");
+    }
+
+    /**
+     * Freezes the player, counting down the freeze time on the display every second.
+     *
+     * @param freezeMillis - the freeze time in milliseconds.
+     * @param reason       - why the player is frozen ("point" or "penalty").
+     */
+    private void freeze(long freezeMillis, String reason) {
+        GameEvents.PlayerFreeze event = new GameEvents.PlayerFreeze();
+        event.begin();
+        env.ui.setFreeze(this.id,freezeMillis);
         try {
-            long timeToSleep = env.config.penaltyFreezeMillis;
+            long timeToSleep = freezeMillis;
             while (timeToSleep>=1000) {
                 timeToSleep = timeToSleep - 1000;
                 Thread.sleep(1000);
@@ -293,10 +386,15 @@ public class Player implements Runnable {
         } catch (InterruptedException ignored) {
         }
         env.ui.setFreeze(this.id, 0);
+        if (event.shouldCommit()) {
+            event.player = id;
+            event.reason = reason;
+            event.commit();
+        }
     }
 
     public int score() {
-        return score;
+        return myDealer.scoreboard().score(id);
     }
 
 
@@ -316,8 +414,23 @@ public class Player implements Runnable {
         }
 
     }
+    /**
+     * Places the tokens of the player saved in a checkpoint (before the player thread starts).
+     *
+     * @param slots - the slots of the tokens (-1 for a token not on the table).
+     */
+    void restoreTokens(int[] slots) {
+        for (int i = 0; i < slots.length && i < tokenPlacment.length; i++)
+            if (slots[i] != -1 && table.hasCard(slots[i])) {
+                tokenPlacment[i] = slots[i];
+                tokenCount++;
+                table.placeToken(id, slots[i]);
+            }
+    }
+
     public void keyPressedclear(){
         keyPressed.clear();
+        input.discardPending();
     }
 
     public boolean getHuman (){
@@ -0,0 +1,255 @@
+package bguspl.set.ex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class holds the scores of all the players and a live ranking of them.
+ * Updates never take a lock: every score is an atomic counter, the ranking is a concurrent skip list and readers get
+ * immutable snapshots that are published copy-on-write.
+ *
+ * @inv score(player) >= 0
+ * @inv snapshot().version() grows with every score change
+ */
+public class Scoreboard {
+
+    /**
+     * The current score of every player.
+     */
+    private final AtomicIntegerArray scores;
+
+    /**
+     * The ranking entries (see rankKey), ordered from the best score to the worst.
+     */
+    private final ConcurrentSkipListSet<Long> ranking;
+
+    /**
+     * The latest consistent view of the scoreboard.
+     */
+    private final AtomicReference<Snapshot> snapshot;
+
+    /**
+     * The number of penalties of every player.
+     */
+    private final AtomicIntegerArray penalties;
+
+    /**
+     * The number of claims the dealer decided for every player, and the total time they waited for the verdict.
+     */
+    private final AtomicIntegerArray claims;
+    private final AtomicLongArray claimNanos;
+
+    /**
+     * The class constructor.
+     *
+     * @param players - the number of players in the game.
+     */
+    public Scoreboard(int players) {
+        scores = new AtomicIntegerArray(players);
+        ranking = new ConcurrentSkipListSet<>();
+        for (int player = 0; player < players; player++)
+            ranking.add(rankKey(player, 0));
+        snapshot = new AtomicReference<>(new Snapshot(0, new int[players]));
+        penalties = new AtomicIntegerArray(players);
+        claims = new AtomicIntegerArray(players);
+        claimNanos = new AtomicLongArray(players);
+    }
+
+    /**
+     * Encodes a ranking entry so that the natural order of the keys is: higher score first, then lower player id.
+     */
+    private static long rankKey(int player, int score) {
+        return ((long) -score << 32) | player;
+    }
+
+    /**
+     * Awards a point to a player.
+     *
+     * @param player - the player id.
+     * @return - the new score of the player.
+     * @post - score(player) == @pre(score(player)) + 1
+     */
+    public int point(int player) {
+        int score = scores.incrementAndGet(player);
+        ranking.add(rankKey(player, score));
+        ranking.remove(rankKey(player, score - 1));
+        publish(player);
+        return score;
+    }
+
+    /**
+     * Sets the score of a player (e.g. when restoring a saved game).
+     *
+     * @param player - the player id.
+     * @param score  - the new score of the player.
+     */
+    public void setScore(int player, int score) {
+        int old = scores.getAndSet(player, score);
+        if (old == score) return;
+        ranking.add(rankKey(player, score));
+        ranking.remove(rankKey(player, old));
+        publish(player);
+    }
+
+    /**
+     * Publishes a new snapshot that contains the current score of the player.
+     */
+    private void publish(int player) {
+        Snapshot current;
+        Snapshot next;
+        do {
+            current = snapshot.get();
+            next = current.with(player, scores.get(player));
+        } while (!snapshot.compareAndSet(current, next));
+    }
+
+    /**
+     * @param player - the player id.
+     * @return - the current score of the player.
+     */
+    public int score(int player) {
+        return scores.get(player);
+    }
+
+    /**
+     * Counts a penalty of a player (penalties do not change the score).
+     *
+     * @param player - the player id.
+     */
+    public void penalty(int player) {
+        penalties.incrementAndGet(player);
+    }
+
+    /**
+     * @param player - the player id.
+     * @return - the number of penalties of the player.
+     */
+    public int penalties(int player) {
+        return penalties.get(player);
+    }
+
+    /**
+     * Counts a claim of a player that the dealer decided.
+     *
+     * @param player - the player id.
+     * @param nanos  - the time from the key press that completed the claim until the verdict, in nanoseconds.
+     */
+    public void claimDecided(int player, long nanos) {
+        claims.incrementAndGet(player);
+        claimNanos.addAndGet(player, Math.max(0, nanos));
+    }
+
+    /**
+     * @param player - the player id.
+     * @return - the number of claims of the player that the dealer decided.
+     */
+    public int claims(int player) {
+        return claims.get(player);
+    }
+
+    /**
+     * @param player - the player id.
+     * @return - the total time the claims of the player waited for the verdict, in nanoseconds.
+     */
+    public long claimNanos(int player) {
+        return claimNanos.get(player);
+    }
+
+    /**
+     * @return - the number of players on the scoreboard.
+     */
+    public int players() {
+        return scores.length();
+    }
+
+    /**
+     * @return - a consistent view of all the scores.
+     */
+    public Snapshot snapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Returns the ids of the best players, ordered by score (ties are broken by the lower player id).
+     * The ranking is live, so it may already include points that were awarded after the call started.
+     *
+     * @param k - the maximum number of players to return.
+     * @return - an array of up to k player ids.
+     */
+    public int[] topK(int k) {
+        int[] top = new int[Math.min(k, players())];
+        boolean[] seen = new boolean[players()];
+        int count = 0;
+        for (Iterator<Long> it = ranking.iterator(); it.hasNext() && count < top.length; ) {
+            int player = (int) (long) it.next();
+            if (!seen[player]) { // a player may appear twice while its entry is being moved
+                seen[player] = true;
+                top[count++] = player;
+            }
+        }
+        return count == top.length ? top : Arrays.copyOf(top, count);
+    }
+
+    /**
+     * An immutable view of all the scores at a single point in time.
+     */
+    public static final class Snapshot {
+
+        /**
+         * The number of score changes that happened before this snapshot was taken.
+         */
+        private final long version;
+
+        /**
+         * The score of every player.
+         */
+        private final int[] scores;
+
+        private Snapshot(long version, int[] scores) {
+            this.version = version;
+            this.scores = scores;
+        }
+
+        private Snapshot with(int player, int score) {
+            if (scores[player] == score) return this;
+            int[] updated = scores.clone();
+            updated[player] = score;
+            return new Snapshot(version + 1, updated);
+        }
+
+        public long version() {
+            return version;
+        }
+
+        public int score(int player) {
+            return scores[player];
+        }
+
+        public int[] scores() {
+            return scores.clone();
+        }
+
+        /**
+         * @return - the ids of all the players with the best score (more than one in case of a tie).
+         */
+        public int[] winners() {
+            int best = Integer.MIN_VALUE;
+            List<Integer> winners = new ArrayList<>();
+            for (int player = 0; player < scores.length; player++) {
+                if (scores[player] > best) {
+                    best = scores[player];
+                    winners.clear();
+                }
+                if (scores[player] == best)
+                    winners.add(player);
+            }
+            return winners.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+}
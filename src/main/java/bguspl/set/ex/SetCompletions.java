@@ -0,0 +1,92 @@
+package bguspl.set.ex;
+
+import bguspl.set.Util;
+
+/**
+ * Keeps track, incrementally, of the sets among a collection of cards (the cards on the table) and of the cards that
+ * would complete one: for every card, the number of pairs in the collection that it completes to a set. Adding or
+ * removing a card costs one completion lookup (see Util::completeSet) per card in the collection, instead of finding
+ * all the sets again.
+ * Only for sets of 3 cards, and only when the completion lookup is available (see isAvailable).
+ * Not thread safe: it is changed together with the table, by the thread that changes the table.
+ */
+class SetCompletions {
+
+    private final Util util;
+
+    /**
+     * The cards in the collection, in no particular order.
+     */
+    private final int[] cards;
+    private int size;
+
+    /**
+     * For every card, the number of pairs of cards in the collection that it completes to a set.
+     */
+    private final int[] completing;
+
+    /**
+     * The number of sets in the collection.
+     */
+    private int sets;
+
+    /**
+     * The class constructor.
+     *
+     * @param util     - the set utilities.
+     * @param deckSize - the number of cards in the deck.
+     * @param capacity - the maximum number of cards in the collection.
+     */
+    SetCompletions(Util util, int deckSize, int capacity) {
+        this.util = util;
+        cards = new int[capacity];
+        completing = new int[deckSize];
+    }
+
+    /**
+     * @return - true iff the completion lookup is available for the deck (so the collection can be tracked).
+     */
+    static boolean isAvailable(Util util, int deckSize) {
+        return deckSize >= 2 && util.completeSet(0, 1) >= 0;
+    }
+
+    /**
+     * Adds a card to the collection.
+     */
+    void add(int card) {
+        sets += completing[card];
+        for (int i = 0; i < size; i++)
+            completing[util.completeSet(card, cards[i])]++;
+        cards[size++] = card;
+    }
+
+    /**
+     * Removes a card from the collection.
+     */
+    void remove(int card) {
+        int i = 0;
+        while (i < size && cards[i] != card)
+            i++;
+        if (i == size)
+            return;
+        cards[i] = cards[--size];
+        for (i = 0; i < size; i++)
+            completing[util.completeSet(card, cards[i])]--;
+        sets -= completing[card];
+    }
+
+    /**
+     * @return - the number of sets in the collection.
+     */
+    int sets() {
+        return sets;
+    }
+
+    /**
+     * @param card - a card that is not in the collection.
+     * @return - true iff the card completes a set with two cards of the collection.
+     */
+    boolean completesSet(int card) {
+        return completing[card] > 0;
+    }
+}
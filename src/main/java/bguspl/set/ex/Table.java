@@ -3,34 +3,84 @@ package bguspl.set.ex;
 import bguspl.set.Env;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
 
 /**
  * This class contains the data that is visible to the player.
  *
  * @inv slotToCard[x] == y iff cardToSlot[y] == x
+ * @inv slotToCard[x] != EMPTY iff bit x of occupied is set
  */
 public class Table {
 
+    /**
+     * The value stored in slotToCard and cardToSlot for an empty slot or a card that is not on the table.
+     */
+    public static final int EMPTY = -1;
+
     /**
      * The game environment object.
      */
     private final Env env;
 
     /**
-     * Mapping between a slot and the card placed in it (null if none).
+     * Mapping between a slot and the card placed in it (EMPTY if none).
+     */
+    protected final int[] slotToCard; // card per slot (if any)
+
+    /**
+     * Mapping between a card and the slot it is in (EMPTY if none).
+     */
+    protected final int[] cardToSlot; // slot per card (if any)
+
+    /**
+     * The boxed mappings given to the testing constructor (null otherwise): placeCard and removeCard write every
+     * change to them too, so they stay the table's mappings (with null for EMPTY).
+     */
+    private final Integer[] boxedSlotToCard;
+    private final Integer[] boxedCardToSlot;
+
+    /**
+     * A bitmap of the slots that have a card in them (bit i of word i / 64 for slot i).
      */
-    protected final Integer[] slotToCard; // card per slot (if any)
+    private final long[] occupied;
 
     /**
-     * Mapping between a card and the slot it is in (null if none).
+     * The version of every slot. It is bumped before and after each change of the card in the slot, so it is odd
+     * while the slot is being changed.
      */
-    protected final Integer[] cardToSlot; // slot per card (if any)
+    private final AtomicLongArray slotVersions;
 
     /**
-     * Constructor for testing.
+     * A Zobrist-style fingerprint of the cards on the table: the XOR of a 64-bit key for every (slot, card) pair.
+     * It is updated incrementally by placeCard and removeCard.
+     */
+    private volatile long fingerprint;
+
+    /**
+     * The sets found on recent table layouts, keyed by their fingerprint.
+     */
+    private final HintCache hintCache;
+
+    /**
+     * The sets on the table and the cards that would complete one, updated incrementally by placeCard and removeCard
+     * (null if the completion lookup is not available, see SetCompletions).
+     */
+    private final SetCompletions completions;
+
+    /**
+     * Guards the players' tokens against the dealer removing cards from the table. Every table has its own, so
+     * games running side by side do not share it.
+     */
+    public final Semaphore slotLock = new Semaphore(1, true);
+
+    /**
+     * Constructor for testing. The table keeps its own int mappings, and writes every change back to the given arrays,
+     * so they keep reflecting the table.
      *
      * @param env        - the game environment objects.
      * @param slotToCard - mapping between a slot and the card placed in it (null if none).
@@ -38,9 +88,7 @@ public class Table {
      */
     public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
 
-        this.env = env;
-        this.slotToCard = slotToCard;
-        this.cardToSlot = cardToSlot;
+        this(env, unbox(slotToCard), unbox(cardToSlot), slotToCard, cardToSlot);
     }
 
     /**
@@ -50,20 +98,147 @@ public class Table {
      */
     public Table(Env env) {
 
-        this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
+        this(env, emptyMapping(env.config.tableSize), emptyMapping(env.config.deckSize));
+    }
+
+    /**
+     * The class constructor.
+     *
+     * @param env        - the game environment objects.
+     * @param slotToCard - mapping between a slot and the card placed in it (EMPTY if none).
+     * @param cardToSlot - mapping between a card and the slot it is in (EMPTY if none).
+     */
+    public Table(Env env, int[] slotToCard, int[] cardToSlot) {
+
+        this(env, slotToCard, cardToSlot, null, null);
+    }
+
+    private Table(Env env, int[] slotToCard, int[] cardToSlot, Integer[] boxedSlotToCard, Integer[] boxedCardToSlot) {
+
+        this.env = env;
+        this.boxedSlotToCard = boxedSlotToCard;
+        this.boxedCardToSlot = boxedCardToSlot;
+        this.slotToCard = slotToCard;
+        this.cardToSlot = cardToSlot;
+        this.occupied = new long[(slotToCard.length + 63) / 64];
+        long fingerprint = 0;
+        for (int slot = 0; slot < slotToCard.length; slot++)
+            if (slotToCard[slot] != EMPTY) {
+                occupied[slot >> 6] |= 1L << slot;
+                fingerprint ^= zobristKey(slot, slotToCard[slot]);
+            }
+        this.fingerprint = fingerprint;
+        this.slotVersions = new AtomicLongArray(slotToCard.length);
+        this.hintCache = new HintCache(env.config.hintCacheSize);
+        if (SetCompletions.isAvailable(env.util, cardToSlot.length)) {
+            completions = new SetCompletions(env.util, cardToSlot.length, slotToCard.length);
+            for (int card : slotToCard)
+                if (card != EMPTY)
+                    completions.add(card);
+        } else
+            completions = null;
+    }
+
+    private static int[] emptyMapping(int size) {
+        int[] mapping = new int[size];
+        Arrays.fill(mapping, EMPTY);
+        return mapping;
+    }
+
+    private static int[] unbox(Integer[] mapping) {
+        return Arrays.stream(mapping).mapToInt(value -> value == null ? EMPTY : value).toArray();
+    }
+
+    /**
+     * The Zobrist key of a card in a slot: a fixed pseudo-random 64-bit value (the SplitMix64 finalizer of the pair).
+     */
+    private long zobristKey(int slot, int card) {
+        long z = ((long) slot * cardToSlot.length + card + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return - a 64-bit fingerprint of the cards on the table and the slots they are in.
+     */
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    public HintCache hintCache() {
+        return hintCache;
+    }
+
+    /**
+     * Returns the cache entry of the current table layout, finding its sets on a miss.
+     */
+    private HintCache.Entry layout() {
+        long before = fingerprint;
+        HintCache.Entry entry = hintCache.get(before);
+        if (entry == null) {
+            entry = new HintCache.Entry(Collections.unmodifiableList(env.util.findSets(cardsOnTable(), Integer.MAX_VALUE)));
+            if (fingerprint == before) // do not cache sets of a table that changed while they were found
+                hintCache.put(before, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Returns all the legal sets of cards that are currently on the table (answered from the hint cache when the
+     * same table layout was seen recently).
+     *
+     * @return - an unmodifiable list of the sets (each one sorted by card id).
+     */
+    public List<int[]> sets() {
+        return layout().sets;
+    }
+
+    /**
+     * Checks if there is a legal set on the table, from the incremental count when it is available (see
+     * SetCompletions), so it costs nothing after each change of the table. Called by the thread that changes the
+     * table.
+     *
+     * @return - true iff there is at least one legal set on the table.
+     */
+    public boolean hasSet() {
+        return completions != null ? completions.sets() > 0 : !sets().isEmpty();
+    }
+
+    /**
+     * @return - true iff the table tracks the cards that would complete a set (see completesSet).
+     */
+    public boolean tracksCompletions() {
+        return completions != null;
+    }
+
+    /**
+     * Checks if a card would complete a set with two cards on the table. Called by the thread that changes the table.
+     *
+     * @param card - a card that is not on the table.
+     * @return - true iff it completes a set (false if the table does not track completions).
+     */
+    public boolean completesSet(int card) {
+        return completions != null && completions.completesSet(card);
     }
 
     /**
      * This method prints all possible legal sets of cards that are currently on the table.
      */
     public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
-            StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
-            List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
-            int[][] features = env.util.cardsToFeatures(set);
-            System.out.println(sb.append("slots: ").append(slots).append(" features: ").append(Arrays.deepToString(features)));
-        });
+        HintCache.Entry entry = layout();
+        String hints = entry.hints;
+        if (hints == null) {
+            StringBuilder sb = new StringBuilder();
+            entry.sets.forEach(set -> {
+                int[] slots = Arrays.stream(set).map(card -> cardToSlot[card]).sorted().toArray();
+                int[][] features = env.util.cardsToFeatures(set);
+                sb.append("Hint: Set found: slots: ").append(Arrays.toString(slots)).append(" features: ")
+                        .append(Arrays.deepToString(features)).append(System.lineSeparator());
+            });
+            entry.hints = hints = sb.toString();
+        }
+        System.out.print(hints);
     }
 
     /**
@@ -73,12 +248,80 @@ public class Table {
      */
     public int countCards() {
         int cards = 0;
-        for (Integer card : slotToCard)
-            if (card != null)
-                ++cards;
+        for (long word : occupied)
+            cards += Long.bitCount(word);
         return cards;
     }
 
+    /**
+     * @return - the number of slots on the table.
+     */
+    public int size() {
+        return slotToCard.length;
+    }
+
+    /**
+     * @param slot - the slot to check.
+     * @return - true iff there is a card in the slot.
+     */
+    public boolean hasCard(int slot) {
+        return (occupied[slot >> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * @param slot - the slot to check.
+     * @return - the card in the slot, or EMPTY if none.
+     */
+    public int cardAt(int slot) {
+        return slotToCard[slot];
+    }
+
+    /**
+     * @param card - the card to look for.
+     * @return - the slot the card is in, or EMPTY if it is not on the table.
+     */
+    public int slotOf(int card) {
+        return cardToSlot[card];
+    }
+
+    /**
+     * Calls the action for every slot that has a card in it, in ascending slot order.
+     *
+     * @param action - the action to call with each occupied slot.
+     */
+    public void forEachOccupiedSlot(IntConsumer action) {
+        for (int word = 0; word < occupied.length; word++)
+            for (long bits = occupied[word]; bits != 0; bits &= bits - 1)
+                action.accept((word << 6) + Long.numberOfTrailingZeros(bits));
+    }
+
+    /**
+     * @return - the slots that have a card in them, in ascending order.
+     */
+    public int[] occupiedSlots() {
+        int[] slots = new int[slotToCard.length];
+        int count = 0;
+        for (int word = 0; word < occupied.length; word++)
+            for (long bits = occupied[word]; bits != 0; bits &= bits - 1)
+                slots[count++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+        return Arrays.copyOf(slots, count);
+    }
+
+    /**
+     * @return - the cards on the table, ordered by their slots.
+     */
+    public int[] cardsOnTable() {
+        int[] cards = new int[slotToCard.length];
+        int count = 0;
+        for (int word = 0; word < occupied.length; word++)
+            for (long bits = occupied[word]; bits != 0; bits &= bits - 1) {
+                int card = slotToCard[(word << 6) + Long.numberOfTrailingZeros(bits)];
+                if (card != EMPTY) // the dealer may be changing the slot right now
+                    cards[count++] = card;
+            }
+        return Arrays.copyOf(cards, count);
+    }
+
     /**
      * Places a card on the table in a grid slot.
      *
@@ -88,11 +331,21 @@ public class Table {
      */
     public void placeCard(int card, int slot) {
         try {
-            Thread.sleep(env.config.tableDelayMillis);
+            Thread.sleep(env.liveConfig().tableDelayMillis);
         } catch (InterruptedException ignored) {
         }
+        slotVersions.incrementAndGet(slot);
         cardToSlot[card] = slot;
         slotToCard[slot] = card;
+        if (boxedSlotToCard != null) {
+            boxedCardToSlot[card] = slot;
+            boxedSlotToCard[slot] = card;
+        }
+        occupied[slot >> 6] |= 1L << slot;
+        fingerprint ^= zobristKey(slot, card);
+        slotVersions.incrementAndGet(slot);
+        if (completions != null)
+            completions.add(card);
         env.ui.placeCard(card, slot);
     }
 
@@ -103,13 +356,62 @@ public class Table {
      */
     public void removeCard(int slot) {
         try {
-            Thread.sleep(env.config.tableDelayMillis);
+            Thread.sleep(env.liveConfig().tableDelayMillis);
         } catch (InterruptedException ignored) {
         }
         env.ui.removeCard(slot);
         env.ui.removeTokens(slot);
-        cardToSlot[slotToCard[slot]] = null;
-        slotToCard[slot] = null;
+        slotVersions.incrementAndGet(slot);
+        occupied[slot >> 6] &= ~(1L << slot);
+        fingerprint ^= zobristKey(slot, slotToCard[slot]);
+        if (completions != null)
+            completions.remove(slotToCard[slot]);
+        if (boxedSlotToCard != null) {
+            boxedCardToSlot[slotToCard[slot]] = null;
+            boxedSlotToCard[slot] = null;
+        }
+        cardToSlot[slotToCard[slot]] = EMPTY;
+        slotToCard[slot] = EMPTY;
+        slotVersions.incrementAndGet(slot);
+    }
+
+    /**
+     * Creates a claim on the given slots, reading each card together with the version of its slot.
+     *
+     * @param player - the player making the claim.
+     * @param slots  - the claimed slots.
+     * @return - the claim (its cards are tested as a set on the calling thread).
+     */
+    public Claim claim(Player player, int[] slots) {
+        int[] claimed = slots.clone();
+        int[] cards = new int[claimed.length];
+        long[] versions = new long[claimed.length];
+        boolean present = true;
+        for (int i = 0; i < claimed.length; i++) {
+            long version;
+            int card;
+            do { // retry while the dealer is in the middle of changing the slot
+                version = slotVersions.get(claimed[i]);
+                card = slotToCard[claimed[i]];
+            } while ((version & 1) != 0 || version != slotVersions.get(claimed[i]));
+            versions[i] = version;
+            cards[i] = card;
+            present &= card != EMPTY;
+        }
+        return new Claim(player, claimed, cards, versions, present && env.util.testSet(cards));
+    }
+
+    /**
+     * Checks that none of the claimed slots changed since the claim was made.
+     *
+     * @param claim - the claim to check.
+     * @return - true iff the cards of the claim are still on the table in the same slots.
+     */
+    public boolean isCurrent(Claim claim) {
+        for (int i = 0; i < claim.size(); i++)
+            if (slotVersions.get(claim.slot(i)) != claim.version(i))
+                return false;
+        return true;
     }
 
     /**
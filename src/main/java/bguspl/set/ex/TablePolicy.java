@@ -0,0 +1,173 @@
+package bguspl.set.ex;
+
+import bguspl.set.Util;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * What the dealer does when the cards on the table contain no set, instead of (or before) returning all of them to
+ * the deck and dealing a whole new table. A policy is parsed from its name (see Config.tablePolicy):
+ * "Reshuffle" - nothing: the round ends and the whole table is dealt again (the original rule).
+ * "ExtraSlots" - the table is dealt 3 cards short, and 3 more cards are dealt into the spare slots when there is no
+ * set (the classic 12 + 3 layout); the table shrinks back once a set is collected from it.
+ * "MinimalSwap" - swaps the fewest table cards (1 or 2) for deck cards that complete a set with the cards that stay.
+ * When a policy cannot fix the table, the round ends as with Reshuffle.
+ */
+public abstract class TablePolicy {
+
+    /**
+     * The number of cards the table is dealt up to in normal play.
+     *
+     * @param tableSize - the number of slots on the table.
+     */
+    public int dealtSlots(int tableSize) {
+        return tableSize;
+    }
+
+    /**
+     * Changes the cards of a table that contains no set, so it contains one. Must be called by the only thread that
+     * changes the table and the deck right now.
+     *
+     * @param table      - the table (with no set on it).
+     * @param deck       - the deck; cards dealt are taken from it, and cards taken off the table are added to it.
+     * @param removeCard - removes the card in a slot from the table, together with all the tokens on it.
+     * @return - true iff the table was changed and now contains a set.
+     */
+    public abstract boolean fix(Table table, List<Integer> deck, IntConsumer removeCard);
+
+    /**
+     * Creates a table policy from its name (see the class description).
+     *
+     * @param name - the name of the policy.
+     * @param util - the set utilities.
+     * @return - the table policy.
+     * @throws IllegalArgumentException - if there is no such policy.
+     */
+    public static TablePolicy parse(String name, Util util) {
+        switch (name.trim().toLowerCase()) {
+            case "reshuffle":
+                return new Reshuffle();
+            case "extraslots":
+                return new ExtraSlots();
+            case "minimalswap":
+                return new MinimalSwap(util);
+        }
+        throw new IllegalArgumentException("invalid table policy: " + name);
+    }
+
+    static class Reshuffle extends TablePolicy {
+        @Override
+        public boolean fix(Table table, List<Integer> deck, IntConsumer removeCard) {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "Reshuffle";
+        }
+    }
+
+    static class ExtraSlots extends TablePolicy {
+        private static final int EXTRA = 3;
+
+        @Override
+        public int dealtSlots(int tableSize) {
+            return Math.max(EXTRA, tableSize - EXTRA);
+        }
+
+        @Override
+        public boolean fix(Table table, List<Integer> deck, IntConsumer removeCard) {
+            int dealt = 0;
+            for (int slot = 0; slot < table.size() && dealt < EXTRA && !deck.isEmpty(); slot++)
+                if (!table.hasCard(slot)) {
+                    table.placeCard(deck.remove(0), slot);
+                    dealt++;
+                }
+            return dealt > 0 && table.hasSet();
+        }
+
+        @Override
+        public String toString() {
+            return "ExtraSlots";
+        }
+    }
+
+    static class MinimalSwap extends TablePolicy {
+        private final Util util;
+
+        MinimalSwap(Util util) {
+            this.util = util;
+        }
+
+        /**
+         * @return - the card that completes the two cards to a set, if it is in the deck (-1 otherwise).
+         */
+        private int thirdInDeck(int first, int second, boolean[] inDeck, List<Integer> deck) {
+            int third = util.completeSet(first, second);
+            if (third >= 0)
+                return third < inDeck.length && inDeck[third] ? third : -1;
+            for (int card : deck) // no lookup: test every deck card
+                if (card != first && card != second && util.testSet(new int[]{first, second, card}))
+                    return card;
+            return -1;
+        }
+
+        @Override
+        public boolean fix(Table table, List<Integer> deck, IntConsumer removeCard) {
+            int[] slots = table.occupiedSlots();
+            if (slots.length < 3 || deck.isEmpty())
+                return false;
+            int maxCard = 0;
+            for (int card : deck)
+                maxCard = Math.max(maxCard, card);
+            for (int slot : slots)
+                maxCard = Math.max(maxCard, table.cardAt(slot));
+            boolean[] inDeck = new boolean[maxCard + 1];
+            for (int card : deck)
+                inDeck[card] = true;
+
+            // one swap: two table cards whose third card is in the deck
+            for (int i = 0; i < slots.length; i++)
+                for (int j = i + 1; j < slots.length; j++) {
+                    int third = thirdInDeck(table.cardAt(slots[i]), table.cardAt(slots[j]), inDeck, deck);
+                    if (third >= 0) {
+                        swap(table, deck, removeCard, slots[i == 0 ? (j == 1 ? 2 : 1) : 0], third);
+                        return true;
+                    }
+                }
+
+            // two swaps: a table card and two deck cards completing it
+            for (int i = 0; i < slots.length; i++)
+                for (int second : deck) {
+                    int third = thirdInDeck(table.cardAt(slots[i]), second, inDeck, deck);
+                    if (third >= 0 && third != second) {
+                        int[] others = new int[2];
+                        for (int k = 0, found = 0; found < 2; k++)
+                            if (k != i)
+                                others[found++] = slots[k];
+                        swap(table, deck, removeCard, others[0], second);
+                        swap(table, deck, removeCard, others[1], third);
+                        return true;
+                    }
+                }
+            return false;
+        }
+
+        /**
+         * Puts a deck card in a slot instead of the card there, which goes back to the deck.
+         */
+        private static void swap(Table table, List<Integer> deck, IntConsumer removeCard, int slot, int card) {
+            int old = table.cardAt(slot);
+            removeCard.accept(slot);
+            deck.remove(Integer.valueOf(card));
+            deck.add(old);
+            table.placeCard(card, slot);
+        }
+
+        @Override
+        public String toString() {
+            return "MinimalSwap";
+        }
+    }
+}